@@ -0,0 +1,144 @@
+/* ====================================================================
+   Copyright 2017 Andreas Beeker (kiwiwings@apache.org)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package de.kiwiwings.poi.visualizer.benchmarks;
+
+import de.kiwiwings.poi.visualizer.CodeFormatter;
+import de.kiwiwings.poi.visualizer.CodeIndenter;
+import de.kiwiwings.poi.visualizer.CodeTokenizer;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelUtils;
+import org.apache.poi.ddf.EscherRecord;
+import org.apache.poi.hslf.record.PPDrawingGroup;
+import org.fxmisc.richtext.model.StyleSpans;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.json.JsonObject;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the stages, which run when an entry is selected - reflecting the record properties,
+ * escaping the node names, pretty-printing the json and xml and computing the highlighting.
+ * <p>
+ * The inputs are a drawing group record with 200 pictures, a 10 MB worksheet part and 2000 properties.
+ * The escher records of the drawing group are shown as child nodes, so they are reflected separately.
+ * The highlighting only covers the lines, which are highlighted for the viewport of the xml view,
+ * whereas the properties are highlighted as a whole.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderingBenchmark {
+    private static final int PICTURES = 200;
+    private static final int SHEET_SIZE = 10 << 20;
+    private static final int PROPERTIES = 2000;
+    // the visible paragraphs and the margin above and below, which is highlighted in advance
+    private static final int VIEWPORT_LINES = 250;
+
+    private static final String[] NAMES = {
+        "\u0005SummaryInformation", "\u0005DocumentSummaryInformation", "\u0001CompObj", "\u0001Ole", "Workbook",
+        "PowerPoint Document", "Current User", "__substg1.0_0037001F", "MBD0012A4C3",
+        "Text of a slide\rwith a second paragraph\rand a third one", "ObjectPool", "\u0003ObjInfo"
+    };
+
+    private PPDrawingGroup drawingGroup;
+    private final List<EscherRecord> escherRecords = new ArrayList<>();
+    private byte[] sheetXml;
+    private JsonObject properties;
+
+    private CodeTokenizer jsonTokenizer;
+    private CodeTokenizer xmlTokenizer;
+    private String jsonText;
+    private String xmlViewport;
+
+    @Setup(Level.Trial)
+    public void createInputs() throws IOException {
+        drawingGroup = SampleDocuments.createDrawingGroup(PICTURES);
+        addEscherRecords(drawingGroup.getDggContainer());
+        sheetXml = SampleDocuments.createSheetXml(SHEET_SIZE);
+        properties = SampleDocuments.createProperties(PROPERTIES);
+
+        jsonTokenizer = createTokenizer("json-area.css");
+        xmlTokenizer = createTokenizer("xml-area.css");
+        jsonText = CodeIndenter.indentJson(properties);
+
+        final String xmlText = CodeIndenter.indentXml(sheetXml);
+        int end = 0;
+        for (int i = 0; i < VIEWPORT_LINES && end != -1; i++) {
+            end = xmlText.indexOf('\n', end + 1);
+        }
+        xmlViewport = (end == -1) ? xmlText : xmlText.substring(0, end);
+    }
+
+    private void addEscherRecords(final EscherRecord record) {
+        escherRecords.add(record);
+        for (final EscherRecord child : record.getChildRecords()) {
+            addEscherRecords(child);
+        }
+    }
+
+    private static CodeTokenizer createTokenizer(final String stylesheet) {
+        final String url = CodeIndenter.class.getResource(stylesheet).toExternalForm();
+        return CodeTokenizer.fromStylesheets(Collections.singletonList(url));
+    }
+
+    @Benchmark
+    public JsonObject reflectProperties() {
+        return TreeModelUtils.reflectProperties(drawingGroup);
+    }
+
+    @Benchmark
+    public void reflectEscherRecords(final Blackhole bh) {
+        for (final EscherRecord record : escherRecords) {
+            bh.consume(TreeModelUtils.reflectProperties(record));
+        }
+    }
+
+    @Benchmark
+    public void escapeString(final Blackhole bh) {
+        for (final String name : NAMES) {
+            bh.consume(TreeModelUtils.escapeString(name));
+        }
+    }
+
+    @Benchmark
+    public String indentJson() {
+        return CodeIndenter.indentJson(properties);
+    }
+
+    @Benchmark
+    public String indentXml() {
+        return CodeIndenter.indentXml(sheetXml);
+    }
+
+    @Benchmark
+    public StyleSpans<Collection<String>> highlightJson() {
+        return CodeFormatter.computeHighlighting(jsonTokenizer, jsonText);
+    }
+
+    @Benchmark
+    public StyleSpans<Collection<String>> highlightXml() {
+        return CodeFormatter.computeHighlighting(xmlTokenizer, xmlViewport);
+    }
+}
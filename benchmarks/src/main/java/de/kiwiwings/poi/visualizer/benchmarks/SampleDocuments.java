@@ -0,0 +1,245 @@
+/* ====================================================================
+   Copyright 2017 Andreas Beeker (kiwiwings@apache.org)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package de.kiwiwings.poi.visualizer.benchmarks;
+
+import org.apache.poi.hpsf.CustomProperties;
+import org.apache.poi.hpsf.DocumentSummaryInformation;
+import org.apache.poi.hpsf.PropertySetFactory;
+import org.apache.poi.hpsf.WritingNotSupportedException;
+import org.apache.poi.hslf.record.PPDrawingGroup;
+import org.apache.poi.hslf.usermodel.HSLFPictureData;
+import org.apache.poi.hslf.usermodel.HSLFPictureShape;
+import org.apache.poi.hslf.usermodel.HSLFSlide;
+import org.apache.poi.hslf.usermodel.HSLFSlideShow;
+import org.apache.poi.hslf.usermodel.HSLFTextBox;
+import org.apache.poi.hssf.usermodel.HSSFName;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackagingURIHelper;
+import org.apache.poi.poifs.filesystem.DirectoryEntry;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.sl.usermodel.PictureData.PictureType;
+
+import javax.imageio.ImageIO;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Generates synthetic documents, which scale with the number of records of the respective format
+ */
+final class SampleDocuments {
+    // the number of stream entries per storage of the OLE sample
+    private static final int ENTRIES_PER_STORAGE = 1000;
+    // the approximate number of records per slide
+    private static final int RECORDS_PER_SLIDE = 20;
+
+    private SampleDocuments() {
+    }
+
+    /**
+     * The drawing group of a slideshow with the given number of pictures - the slideshow is written and
+     * parsed again, so the records are in the same state as in a loaded document.
+     */
+    static PPDrawingGroup createDrawingGroup(final int pictures) throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (HSLFSlideShow ppt = new HSLFSlideShow()) {
+            for (int i = 0; i < pictures; i++) {
+                // the pictures differ in color, as identical pictures are only stored once
+                final BufferedImage img = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+                img.setRGB(0, 0, i);
+                final ByteArrayOutputStream png = new ByteArrayOutputStream();
+                ImageIO.write(img, "png", png);
+
+                final HSLFPictureData pd = ppt.addPicture(png.toByteArray(), PictureType.PNG);
+                final HSLFPictureShape shape = ppt.createSlide().createPicture(pd);
+                shape.setAnchor(new Rectangle2D.Double(10, 10, 100, 100));
+            }
+            ppt.write(bos);
+        }
+        try (HSLFSlideShow ppt = new HSLFSlideShow(new ByteArrayInputStream(bos.toByteArray()))) {
+            return ppt.getDocumentRecord().getPPDrawingGroup();
+        }
+    }
+
+    /**
+     * An unindented worksheet part of roughly the given size with numeric, formula and shared string cells
+     */
+    static byte[] createSheetXml(final int size) {
+        final StringBuilder sb = new StringBuilder(size + 1024);
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n")
+            .append("<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" ")
+            .append("xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">")
+            .append("<dimension ref=\"A1:J1\"/><sheetData>");
+        int row = 0;
+        while (sb.length() < size) {
+            row++;
+            sb.append("<row r=\"").append(row).append("\" spans=\"1:10\">");
+            for (int col = 0; col < 10; col++) {
+                final String ref = (char)('A' + col) + Integer.toString(row);
+                switch (col % 3) {
+                    case 0:
+                        sb.append("<c r=\"").append(ref).append("\"><v>").append(row * 10 + col).append("</v></c>");
+                        break;
+                    case 1:
+                        sb.append("<c r=\"").append(ref).append("\" t=\"s\"><v>").append(row % 100).append("</v></c>");
+                        break;
+                    default:
+                        sb.append("<c r=\"").append(ref).append("\" s=\"1\"><f>SUM(A").append(row)
+                            .append(":B").append(row).append(")</f><v>").append(row * 2.5).append("</v></c>");
+                        break;
+                }
+            }
+            sb.append("</row>");
+        }
+        sb.append("</sheetData><pageMargins left=\"0.7\" right=\"0.7\" top=\"0.75\" bottom=\"0.75\" ")
+            .append("header=\"0.3\" footer=\"0.3\"/></worksheet>");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Properties of the given count, which mix the value types of the reflected records
+     */
+    static JsonObject createProperties(final int count) {
+        final JsonObjectBuilder job = Json.createObjectBuilder();
+        for (int i = 0; i < count; i++) {
+            final String key = "property" + i;
+            switch (i % 6) {
+                case 0:
+                    job.add(key, i * 31L);
+                    break;
+                case 1:
+                    job.add(key, -i);
+                    break;
+                case 2:
+                    job.add(key, "text value " + i + " with \"quotes\"");
+                    break;
+                case 3:
+                    job.add(key, "{64818D10-4F9B-11CF-86EA-00AA00B929E8}");
+                    break;
+                case 4:
+                    job.add(key, Json.createArrayBuilder().add(i).add(i + 1).add(i % 2 == 0));
+                    break;
+                default:
+                    job.add(key, Json.createObjectBuilder().add("value", i).add("flags", "FLAG_A | FLAG_B"));
+                    break;
+            }
+        }
+        return job.build();
+    }
+
+    /**
+     * A plain OLE file with storages of small streams
+     */
+    static void writeOle(final File file, final int records) throws IOException {
+        final byte[] data = "sample stream".getBytes(StandardCharsets.US_ASCII);
+        try (POIFSFileSystem poifs = new POIFSFileSystem()) {
+            DirectoryEntry dir = null;
+            for (int i = 0; i < records; i++) {
+                if (i % ENTRIES_PER_STORAGE == 0) {
+                    dir = poifs.getRoot().createDirectory("storage" + (i / ENTRIES_PER_STORAGE));
+                }
+                dir.createDocument("stream" + i, new ByteArrayInputStream(data));
+            }
+            try (OutputStream os = new FileOutputStream(file)) {
+                poifs.writeFilesystem(os);
+            }
+        }
+    }
+
+    /**
+     * A workbook with one defined name record per record
+     */
+    static void writeXls(final File file, final int records) throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            wb.createSheet("Sheet1").createRow(0).createCell(0).setCellValue("sample");
+            for (int i = 0; i < records; i++) {
+                final HSSFName name = wb.createName();
+                name.setNameName("name" + i);
+                name.setRefersToFormula("Sheet1!$A$1");
+            }
+            try (OutputStream os = new FileOutputStream(file)) {
+                wb.write(os);
+            }
+        }
+    }
+
+    /**
+     * A slideshow with a text box per slide - each slide adds roughly 20 records
+     */
+    static void writePpt(final File file, final int records) throws IOException {
+        try (HSLFSlideShow ppt = new HSLFSlideShow()) {
+            final int slides = Math.max(1, records / RECORDS_PER_SLIDE);
+            for (int i = 0; i < slides; i++) {
+                final HSLFSlide slide = ppt.createSlide();
+                final HSLFTextBox box = slide.createTextBox();
+                box.setText("slide " + i);
+            }
+            try (OutputStream os = new FileOutputStream(file)) {
+                ppt.write(os);
+            }
+        }
+    }
+
+    /**
+     * An OLE file with a document summary information, which has one custom property per record
+     */
+    static void writeHpsf(final File file, final int records) throws IOException {
+        try (POIFSFileSystem poifs = new POIFSFileSystem()) {
+            final DocumentSummaryInformation dsi = PropertySetFactory.newDocumentSummaryInformation();
+            final CustomProperties cps = new CustomProperties();
+            for (int i = 0; i < records; i++) {
+                cps.put("property" + i, "value" + i);
+            }
+            dsi.setCustomProperties(cps);
+            dsi.write(poifs.getRoot(), DocumentSummaryInformation.DEFAULT_STREAM_NAME);
+            try (OutputStream os = new FileOutputStream(file)) {
+                poifs.writeFilesystem(os);
+            }
+        } catch (WritingNotSupportedException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * An OOXML package with one small xml part per record
+     */
+    static void writeOpc(final File file, final int records) throws IOException {
+        final byte[] data = "<sample/>".getBytes(StandardCharsets.UTF_8);
+        try (OPCPackage pkg = OPCPackage.create(file)) {
+            for (int i = 0; i < records; i++) {
+                final PackagePart part = pkg.createPart(
+                    PackagingURIHelper.createPartName("/parts/part" + i + ".xml"), "application/xml");
+                try (OutputStream os = part.getOutputStream()) {
+                    os.write(data);
+                }
+            }
+        } catch (Exception e) {
+            throw (e instanceof IOException) ? (IOException)e : new IOException(e);
+        }
+    }
+}
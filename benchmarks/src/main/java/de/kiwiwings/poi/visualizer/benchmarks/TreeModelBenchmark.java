@@ -0,0 +1,186 @@
+/* ====================================================================
+   Copyright 2017 Andreas Beeker (kiwiwings@apache.org)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package de.kiwiwings.poi.visualizer.benchmarks;
+
+import de.kiwiwings.poi.visualizer.DocumentFragment;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelDirNodeSource;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelFileSource;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadContext;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadException;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
+import de.kiwiwings.poi.visualizer.treemodel.hpsf.HPSFTreeModel;
+import de.kiwiwings.poi.visualizer.treemodel.hslf.HSLFTreeModel;
+import de.kiwiwings.poi.visualizer.treemodel.hssf.HSSFTreeModel;
+import de.kiwiwings.poi.visualizer.treemodel.ole.OLETreeModel;
+import de.kiwiwings.poi.visualizer.treemodel.opc.OPCTreeModel;
+import org.apache.poi.poifs.filesystem.DirectoryNode;
+import org.apache.poi.poifs.filesystem.Entry;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.util.IOUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static de.kiwiwings.poi.visualizer.treemodel.TreeModelUtils.escapeString;
+
+/**
+ * Measures the loading of the tree models of synthetic documents with the given number of records.
+ * The whole tree is walked, so lazily created nodes are included.
+ * Run with the gc profiler ({@code -prof gc}) to get the allocation rate - the {@link BenchmarkRunner} adds it by default.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TreeModelBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int records;
+
+    private File dir;
+    private File file;
+
+    /**
+     * Only the document of the running benchmark is generated, as large documents take a while
+     */
+    @Setup(Level.Trial)
+    public void createDocument(final BenchmarkParams params) throws IOException {
+        final String benchmark = params.getBenchmark();
+        final String format = benchmark.substring(benchmark.lastIndexOf('.') + 1);
+
+        dir = Files.createTempDirectory("poi-visualizer-bench").toFile();
+        file = new File(dir, "sample." + format);
+
+        switch (format) {
+            case "ole":
+                SampleDocuments.writeOle(file, records);
+                break;
+            case "opc":
+                SampleDocuments.writeOpc(file, records);
+                break;
+            case "hssf":
+                SampleDocuments.writeXls(file, records);
+                break;
+            case "hslf":
+                SampleDocuments.writePpt(file, records);
+                break;
+            case "hpsf":
+                SampleDocuments.writeHpsf(file, records);
+                break;
+            default:
+                throw new IllegalStateException("unknown benchmark " + benchmark);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteDocument() {
+        file.delete();
+        dir.delete();
+    }
+
+    @Benchmark
+    public long ole() throws Exception {
+        return loadFile(new OLETreeModel(), file);
+    }
+
+    @Benchmark
+    public long opc() throws Exception {
+        return loadFile(new OPCTreeModel(), file);
+    }
+
+    @Benchmark
+    public long hssf() throws Exception {
+        return loadDirNode(new HSSFTreeModel(), file);
+    }
+
+    @Benchmark
+    public long hslf() throws Exception {
+        return loadDirNode(new HSLFTreeModel(), file);
+    }
+
+    @Benchmark
+    public long hpsf() throws Exception {
+        return loadDirNode(new HPSFTreeModel(), file);
+    }
+
+    private static long loadFile(final TreeModelFileSource source, final File file) throws Exception {
+        final TreeModelNode root = new TreeModelNode();
+        try {
+            source.load(root, file, new TreeModelLoadContext());
+            return countNodes(root);
+        } finally {
+            root.closeDocument();
+        }
+    }
+
+    /**
+     * Loads a directory node source in isolation - the first level of the storage is prepared like
+     * the OLE tree model does, as the directory node sources attach their models to it
+     */
+    private static long loadDirNode(final TreeModelDirNodeSource source, final File file) throws IOException, TreeModelLoadException {
+        try (POIFSFileSystem poifs = new POIFSFileSystem(file, true)) {
+            final DirectoryNode dirNode = poifs.getRoot();
+            final TreeModelNode root = new TreeModelNode(new NamedEntry(dirNode.getName()));
+            for (final Entry e : dirNode) {
+                root.addChild(new TreeModelNode(new NamedEntry(e.getName())));
+            }
+            try {
+                source.load(root, dirNode, new TreeModelLoadContext());
+                return countNodes(root);
+            } finally {
+                // big workbook streams are spooled to the temp store of the document
+                root.closeDocument();
+            }
+        }
+    }
+
+    static long countNodes(final TreeModelNode node) {
+        long count = 1;
+        for (final TreeModelNode child : node.getChildren()) {
+            count += countNodes(child);
+        }
+        return count;
+    }
+
+    private static final class NamedEntry implements TreeModelEntry {
+        private final String name;
+
+        NamedEntry(final String name) {
+            this.name = escapeString(name);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+
+        @Override
+        public void activate(final DocumentFragment fragment) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/* ====================================================================
+   Copyright 2017 Andreas Beeker (kiwiwings@apache.org)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package de.kiwiwings.poi.visualizer;
+
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the activated fragments of the recently visited entries, so revisiting an entry
+ * doesn't need to activate and render it again.
+ * The fragments are weighted by their estimated memory size and the least recently used ones
+ * are evicted, when the maximum size is exceeded. The cache is only accessed by the JavaFX application thread.
+ * <p>
+ * Evicted fragments are disposed, so their data doesn't keep streams open.
+ */
+final class ActivationCache {
+    /** the maximum number of cached bytes */
+    static final long MAX_SIZE = Long.getLong("poi.visualizer.cache.size", 64L << 20);
+
+    private static final class Cached {
+        final DocumentFragment fragment;
+        final long size;
+
+        Cached(final DocumentFragment fragment, final long size) {
+            this.fragment = fragment;
+            this.size = size;
+        }
+    }
+
+    private final Map<TreeModelEntry, Cached> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxSize;
+    private long size;
+
+    ActivationCache() {
+        this(MAX_SIZE);
+    }
+
+    ActivationCache(final long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the cached fragment of the entry or {@code null}, if it's not cached
+     */
+    DocumentFragment get(final TreeModelEntry entry) {
+        final Cached c = entries.get(entry);
+        return (c == null) ? null : c.fragment;
+    }
+
+    /**
+     * Adds an activated fragment - fragments bigger than the maximum size aren't cached
+     */
+    void put(final TreeModelEntry entry, final DocumentFragment fragment) {
+        remove(entry);
+
+        final long fragSize = fragment.estimateSize();
+        if (fragSize > maxSize) {
+            return;
+        }
+
+        entries.put(entry, new Cached(fragment, fragSize));
+        size += fragSize;
+
+        final Iterator<Cached> iter = entries.values().iterator();
+        while (size > maxSize && iter.hasNext()) {
+            final Cached c = iter.next();
+            size -= c.size;
+            iter.remove();
+            c.fragment.dispose();
+        }
+    }
+
+    void remove(final TreeModelEntry entry) {
+        final Cached c = entries.remove(entry);
+        if (c != null) {
+            size -= c.size;
+            c.fragment.dispose();
+        }
+    }
+
+    void clear() {
+        entries.values().forEach(c -> c.fragment.dispose());
+        entries.clear();
+        size = 0;
+    }
+
+    /**
+     * @return the estimated number of cached bytes
+     */
+    long getSize() {
+        return size;
+    }
+
+    long getMaxSize() {
+        return maxSize;
+    }
+
+    int getCount() {
+        return entries.size();
+    }
+}
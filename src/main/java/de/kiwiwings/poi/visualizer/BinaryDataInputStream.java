@@ -0,0 +1,65 @@
+/* ====================================================================
+   Copyright 2017 Andreas Beeker (kiwiwings@apache.org)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package de.kiwiwings.poi.visualizer;
+
+import org.exbin.utils.binary_data.BinaryData;
+
+import java.io.InputStream;
+
+/**
+ * Reads binary data via copyToArray - the released deltahex artifact has an error
+ * in getDataInputStream, which is fixed in trunk ...
+ */
+class BinaryDataInputStream extends InputStream {
+    private final BinaryData data;
+    private long pos;
+
+    BinaryDataInputStream(final BinaryData data) {
+        this.data = data;
+    }
+
+    @Override
+    public int read() {
+        return (pos < data.getDataSize()) ? data.getByte(pos++) & 0xFF : -1;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) {
+        final long remaining = data.getDataSize() - pos;
+        if (len == 0) {
+            return 0;
+        } else if (remaining <= 0) {
+            return -1;
+        }
+        final int readLen = (int)Math.min(len, remaining);
+        data.copyToArray(pos, b, off, readLen);
+        pos += readLen;
+        return readLen;
+    }
+
+    @Override
+    public long skip(final long n) {
+        final long skipLen = Math.max(0, Math.min(n, data.getDataSize() - pos));
+        pos += skipLen;
+        return skipLen;
+    }
+
+    @Override
+    public int available() {
+        return (int)Math.min(Integer.MAX_VALUE, data.getDataSize() - pos);
+    }
+}
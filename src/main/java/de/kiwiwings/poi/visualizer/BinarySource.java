@@ -17,10 +17,10 @@
 package de.kiwiwings.poi.visualizer;
 
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadException;
-import org.exbin.utils.binary_data.ByteArrayEditableData;
+import org.exbin.utils.binary_data.BinaryData;
 
 import java.io.IOException;
 
 public interface BinarySource {
-	ByteArrayEditableData getBinaryData() throws IOException, TreeModelLoadException;
+	BinaryData getBinaryData() throws IOException, TreeModelLoadException;
 }
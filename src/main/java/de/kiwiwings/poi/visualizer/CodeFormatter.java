@@ -16,29 +16,43 @@
 
 package de.kiwiwings.poi.visualizer;
 
-import javafx.css.*;
+import javafx.application.Platform;
 import org.fxmisc.richtext.CodeArea;
 import org.fxmisc.richtext.LineNumberFactory;
 import org.fxmisc.richtext.model.PlainTextChange;
+import org.fxmisc.richtext.model.StyleSpans;
 import org.fxmisc.richtext.model.StyleSpansBuilder;
+import org.fxmisc.richtext.model.TwoDimensional.Bias;
 import org.reactfx.Subscription;
 
-import java.io.IOException;
-import java.net.URL;
 import java.time.Duration;
-import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class CodeFormatter {
-    private static final String PATTERN_RULE = "-fx-pattern";
+    // number of paragraphs above and below the viewport, which are highlighted in advance
+    private static final int VIEWPORT_MARGIN = 100;
+
+    private static final ExecutorService HIGHLIGHTER = Executors.newSingleThreadExecutor(r -> {
+        final Thread th = new Thread(r, "poi-visualizer-highlighter");
+        th.setDaemon(true);
+        return th;
+    });
 
     private final CodeArea codeArea;
-    private final List<Map.Entry<String, Pattern>> styles;
+    private final CodeTokenizer tokenizer;
+
+    // the paragraphs, which are highlighted for the current text version
+    private final BitSet styledParagraphs = new BitSet();
+    private long textVersion;
 
     public CodeFormatter(CodeArea codeArea) {
         this.codeArea = codeArea;
-        styles = extractStyles(codeArea);
+        tokenizer = CodeTokenizer.fromStylesheets(codeArea.getStylesheets());
 
         // final URL cssUrl = CodeFormatter.class.getResource(cssFile);
         // codeArea.getStylesheets().add(cssUrl.toExternalForm());
@@ -54,59 +68,105 @@ public class CodeFormatter {
             //   when making multiple changes (e.g. renaming a method at multiple parts in file)
             .multiPlainChanges()
 
+            // invalidate the highlighting of the changed paragraphs immediately,
+            // so pending results of the old text are discarded
+            .hook(this::invalidateHighlighting)
+
             // do not emit an event until 500 ms have passed since the last emission of previous stream
             .successionEnds(Duration.ofMillis(500))
 
             // run the following code block when previous stream emits an event
-            .subscribe(this::computeHighlighting);
+            .subscribe(changes -> highlightViewport());
+
+        // only the visible paragraphs are highlighted, so continue when scrolling
+        Subscription viewportSubscription = codeArea
+            .viewportDirtyEvents()
+            .successionEnds(Duration.ofMillis(50))
+            .subscribe(e -> highlightViewport());
 
         // when no longer need syntax highlighting and wish to clean up memory leaks
         // run: `cleanupWhenNoLongerNeedIt.unsubscribe();`
     }
 
-    private void computeHighlighting(final List<PlainTextChange> changes) {
-        final String text = codeArea.getText();
-        if (text.isEmpty()) {
-            return;
+    private void invalidateHighlighting(final List<PlainTextChange> changes) {
+        textVersion++;
+        // the styles move with the text, so only the paragraphs from the first change onwards need an update
+        int firstChanged = Integer.MAX_VALUE;
+        for (final PlainTextChange ptc : changes) {
+            firstChanged = Math.min(firstChanged, ptc.getPosition());
         }
+        final int firstPar = codeArea.offsetToPosition(Math.min(firstChanged, codeArea.getLength()), Bias.Forward).getMajor();
+        styledParagraphs.clear(firstPar, Math.max(firstPar, styledParagraphs.length()));
+    }
 
-        final SortedMap<Integer, Integer> startMap = new TreeMap<>();
-        final SortedMap<Integer, String> colorMap = new TreeMap<>();
+    /**
+     * Highlights the unstyled paragraphs of the viewport and a margin around it.
+     * The text of the paragraphs is tokenized in the background and the style spans are only applied,
+     * if the text hasn't changed in the meantime.
+     */
+    private void highlightViewport() {
+        final int visibleCount = codeArea.getVisibleParagraphs().size();
+        if (visibleCount == 0 || codeArea.getLength() == 0) {
+            return;
+        }
 
-        // Match all regexes on this snippet, store positions
-        for (Map.Entry<String, Pattern> entry : styles) {
+        final int parCount = codeArea.getParagraphs().size();
+        final int firstVisible = codeArea.visibleParToAllParIndex(0);
+        final int lastVisible = codeArea.visibleParToAllParIndex(visibleCount - 1);
+        int from = styledParagraphs.nextClearBit(Math.max(0, firstVisible - VIEWPORT_MARGIN));
+        int to = Math.min(parCount - 1, lastVisible + VIEWPORT_MARGIN);
+        while (to >= from && styledParagraphs.get(to)) {
+            to--;
+        }
+        if (from > to) {
+            return;
+        }
 
-            Matcher matcher = entry.getValue().matcher(text);
+        final int startPos = codeArea.getAbsolutePosition(from, 0);
+        final int endPos = codeArea.getAbsolutePosition(to, codeArea.getParagraphLength(to));
+        final String text = codeArea.getText(startPos, endPos);
+        final long version = textVersion;
+        final int fromPar = from, toPar = to;
+
+        HIGHLIGHTER.submit(() -> {
+            final StyleSpans<Collection<String>> spans = computeHighlighting(tokenizer, text);
+            Platform.runLater(() -> {
+                if (version == textVersion) {
+                    if (spans != null) {
+                        codeArea.setStyleSpans(startPos, spans);
+                    }
+                    styledParagraphs.set(fromPar, toPar + 1);
+                    // the viewport might have been scrolled while tokenizing
+                    highlightViewport();
+                }
+            });
+        });
+    }
 
-            while (matcher.find()) {
-                startMap.put(matcher.start(1), matcher.end());
-                colorMap.put(matcher.start(1), entry.getKey());
-            }
+    /**
+     * Computes the style spans of a text - the patterns are matched line by line,
+     * so any range of whole paragraphs can be tokenized independently.
+     *
+     * @param tokenizer the tokenizer of the stylesheets
+     * @param text the text to be highlighted
+     * @return the style spans covering the whole text or {@code null} for an empty text
+     */
+    public static StyleSpans<Collection<String>> computeHighlighting(final CodeTokenizer tokenizer, final String text) {
+        if (text.isEmpty()) {
+            return null;
         }
 
-        final StyleSpansBuilder<Collection<String>> spansBuilder = new StyleSpansBuilder<>();
+        final CodeTokenizer.Tokens tokens = tokenizer.tokenize(text);
+        final StyleSpansBuilder<Collection<String>> spansBuilder = new StyleSpansBuilder<>(tokens.count * 2 + 1);
 
         int last = 0;
-
-        // Colour the parts
-        if (!startMap.isEmpty()) {
-            final Iterator<Map.Entry<Integer, Integer>> iter = startMap.entrySet().iterator();
-            Map.Entry<Integer, Integer> curr = iter.next();
-
-            while (curr != null) {
-                final Map.Entry<Integer, Integer> next = (iter.hasNext()) ? iter.next() : null;
-                final int start = curr.getKey();
-                final int end = Math.min(curr.getValue(), next != null ? next.getKey() : text.length());
-
-                if (last < start) {
-                    spansBuilder.add(Collections.emptyList(), start - last);
-                }
-
-                spansBuilder.add(Collections.singleton(colorMap.get(start)), end - start);
-
-                last = end;
-                curr = next;
+        for (int i = 0; i < tokens.count; i++) {
+            final int start = tokens.starts[i];
+            if (last < start) {
+                spansBuilder.add(Collections.emptyList(), start - last);
             }
+            spansBuilder.add(Collections.singleton(tokenizer.getStyleClass(tokens.styles[i])), tokens.ends[i] - start);
+            last = tokens.ends[i];
         }
 
         // Paint possible remaining text black
@@ -114,36 +174,6 @@ public class CodeFormatter {
             spansBuilder.add(Collections.emptyList(), text.length() - last);
         }
 
-        codeArea.setStyleSpans(0, spansBuilder.create());
-    }
-
-    private static List<Map.Entry<String, Pattern>> extractStyles(final CodeArea area) {
-        final List<Map.Entry<String, Pattern>> styles = new ArrayList<>();
-
-        try {
-            for (final String ss : area.getStylesheets()) {
-                final Stylesheet style = new CssParser().parse(new URL(ss));
-
-                for (final Rule rule : style.getRules()) {
-                    String pattern = null;
-                    for (final Declaration cssProp : rule.getDeclarations()) {
-                        if (PATTERN_RULE.equals(cssProp.getProperty())) {
-                            pattern = cssProp.getParsedValue().getValue().toString();
-                            break;
-                        }
-                    }
-                    if (pattern == null) {
-                        continue;
-                    }
-                    for (final Selector sel : rule.getSelectors()) {
-                        final String styleClass = sel.toString().replace("*.", "");
-                        styles.add(new AbstractMap.SimpleEntry<>(styleClass, Pattern.compile(pattern)));
-                    }
-                }
-            }
-        } catch (IOException e) {
-        }
-
-        return styles;
+        return spansBuilder.create();
     }
 }
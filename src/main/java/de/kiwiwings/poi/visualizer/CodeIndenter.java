@@ -16,30 +16,23 @@
 
 package de.kiwiwings.poi.visualizer;
 
+import org.apache.poi.hpsf.ClassID;
 import org.apache.poi.hpsf.ClassIDPredefined;
-import org.w3c.dom.DOMConfiguration;
-import org.w3c.dom.DOMImplementation;
-import org.w3c.dom.Document;
-import org.w3c.dom.ls.DOMImplementationLS;
-import org.w3c.dom.ls.LSOutput;
-import org.w3c.dom.ls.LSSerializer;
-import org.xml.sax.SAXException;
-
-import javax.json.Json;
-import javax.json.JsonReader;
-import javax.json.JsonWriter;
-import javax.json.stream.JsonGenerator;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import java.io.*;
-import java.nio.charset.Charset;
-import java.util.Collections;
+
+import javax.json.*;
+import java.io.ByteArrayInputStream;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-final class CodeIndenter {
-    private static final Pattern PROPERTY_COMMENT = Pattern.compile("((\\d+)|(\"\\{\\p{XDigit}{8}(-\\p{XDigit}{4}){3}-\\p{XDigit}{12}\\}\"))(,?)$", Pattern.MULTILINE);
+/**
+ * Pretty-printer for the properties and xml views
+ */
+public final class CodeIndenter {
+    private static final String INDENT = "    ";
+    private static final Pattern CLASS_ID = Pattern.compile("\\{\\p{XDigit}{8}(-\\p{XDigit}{4}){3}-\\p{XDigit}{12}\\}");
 
     private static final Object[][] classIdMap = {
         {ClassIDPredefined.OLE_V1_PACKAGE, "OLE10_PACKAGE"},
@@ -71,124 +64,147 @@ final class CodeIndenter {
         {ClassIDPredefined.EQUATION_V3, "EQUATION30"},
     };
 
-    private static final Object[][] DOM_PARAMS = {
-        { "format-pretty-print", true },
-        { "infoset", true },
-        { "xml-declaration", false },
-        { "{http://xml.apache.org/xalan}indent-amount", "2" }
-    };
-
+    private static final Map<ClassID, String> CLASS_ID_NAMES = createClassIdNames();
 
+    private CodeIndenter() {
+    }
 
-    static String indentJson(final String jsonInput) {
-        if (jsonInput == null || "".equals(jsonInput)) {
+    /**
+     * Pretty-prints the properties in a single pass.
+     * Integral numbers are annotated with their hexadecimal value and class ids with their name.
+     *
+     * @param json the properties, can be {@code null}
+     * @return the indented properties or an empty string
+     */
+    public static String indentJson(final JsonObject json) {
+        if (json == null) {
             return "";
-        } else if (!jsonInput.startsWith("{") || jsonInput.contains("/*")) {
-            return jsonInput;
-        } else {
-            try (
-                StringWriter writer = new StringWriter();
-                JsonReader jReader = createJsonReader(new StringReader(jsonInput));
-                JsonWriter jWriter = createJsonWriter(writer)
-            ) {
-                jWriter.write(jReader.readObject());
-                // add comment for ...
-                // numbers to hexadecimal number
-                // class id to class id name, if possible
-                final Matcher mat = PROPERTY_COMMENT.matcher(writer.getBuffer());
-                final StringBuffer buf = new StringBuffer();
-                while (mat.find()) {
-                    final String match = mat.group(1);
-                    final String comment;
-                    if (match.contains("-")) {
-                        comment = getNameFromClassID(match);
-                    } else {
-                        final long l = Long.parseLong(mat.group(1));
-                        comment = "0x" + Long.toHexString(l);
-                    }
-                    mat.appendReplacement(buf, mat.group() + " /*" + comment + "*/");
-                }
-                mat.appendTail(buf);
-                return buf.toString().trim();
-            } catch (IOException ex) {
-                return jsonInput;
-            }
         }
+        final StringBuilder sb = new StringBuilder();
+        writeValue(sb, json, 0);
+        return sb.toString();
+    }
 
+    public static String indentXml(final byte[] xmlInput) {
+        return XmlIndenter.indentAll(new ByteArrayInputStream(xmlInput));
     }
 
-    static String indentXml(final byte[] xmlInput) {
-        try (ByteArrayInputStream is = new ByteArrayInputStream(xmlInput)) {
-            final Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(is);
-            final String xmlDecl = getXmlDeclaration(is);
 
-            // Pretty-prints a DOM document to XML using DOM Load and Save's LSSerializer.
-            // Note that the "format-pretty-print" DOM configuration parameter can only be set in JDK 1.6+.
-            final DOMImplementation domImplementation = doc.getImplementation();
-            if (!domImplementation.hasFeature("LS", "3.0") || !domImplementation.hasFeature("Core", "2.0")) {
-                return "";
+    private static void writeValue(final StringBuilder sb, final JsonValue value, final int depth) {
+        switch (value.getValueType()) {
+            case OBJECT: {
+                final JsonObject obj = (JsonObject)value;
+                sb.append('{');
+                int i = 0;
+                for (Map.Entry<String, JsonValue> me : obj.entrySet()) {
+                    newLine(sb, depth + 1);
+                    writeString(sb, me.getKey());
+                    sb.append(": ");
+                    writeMember(sb, me.getValue(), depth + 1, ++i < obj.size());
+                }
+                newLine(sb, depth);
+                sb.append('}');
+                break;
             }
-            final DOMImplementationLS domImplementationLS = (DOMImplementationLS) domImplementation.getFeature("LS", "3.0");
-            final LSSerializer lsSerializer = domImplementationLS.createLSSerializer();
-            final DOMConfiguration domConfig = lsSerializer.getDomConfig();
-
-            for (final Object[] domParam : DOM_PARAMS) {
-                if (domConfig.canSetParameter((String) domParam[0], domParam[1])) {
-                    domConfig.setParameter((String) domParam[0], domParam[1]);
+            case ARRAY: {
+                final JsonArray arr = (JsonArray)value;
+                sb.append('[');
+                int i = 0;
+                for (JsonValue jv : arr) {
+                    newLine(sb, depth + 1);
+                    writeMember(sb, jv, depth + 1, ++i < arr.size());
                 }
+                newLine(sb, depth);
+                sb.append(']');
+                break;
             }
-
-            final LSOutput lsOutput = domImplementationLS.createLSOutput();
-            lsOutput.setEncoding("UTF-8");
-            final StringWriter stringWriter = new StringWriter(50000);
-            stringWriter.write(xmlDecl);
-            stringWriter.write("\n");
-
-            lsOutput.setCharacterStream(stringWriter);
-            lsSerializer.write(doc, lsOutput);
-            return stringWriter.toString();
-        } catch (IOException | ParserConfigurationException | SAXException ex) {
-            return "";
+            case STRING:
+                writeString(sb, ((JsonString)value).getString());
+                break;
+            default:
+                sb.append(value.toString());
+                break;
         }
     }
 
-
-    private static JsonReader createJsonReader(Reader reader) {
-        return Json.createReaderFactory(null).createReader(reader);
+    /**
+     * Writes an object member or array element, followed by the separator and the annotation
+     */
+    private static void writeMember(final StringBuilder sb, final JsonValue value, final int depth, final boolean hasNext) {
+        writeValue(sb, value, depth);
+        if (hasNext) {
+            sb.append(',');
+        }
+        final String comment = getComment(value);
+        if (comment != null) {
+            sb.append(" /*").append(comment).append("*/");
+        }
     }
 
-    private static JsonWriter createJsonWriter(Writer writer) {
-        final Map<String, Object> props = Collections.singletonMap(JsonGenerator.PRETTY_PRINTING, true);
-        return Json.createWriterFactory(props).createWriter(writer);
+    private static String getComment(final JsonValue value) {
+        switch (value.getValueType()) {
+            case NUMBER: {
+                final JsonNumber num = (JsonNumber)value;
+                if (!num.isIntegral()) {
+                    return null;
+                }
+                final BigInteger bi = num.bigIntegerValue();
+                return (bi.signum() < 0 ? "-0x" : "0x") + bi.abs().toString(16);
+            }
+            case STRING: {
+                final String str = ((JsonString)value).getString();
+                if (str.length() != 38 || str.charAt(0) != '{' || !CLASS_ID.matcher(str).matches()) {
+                    return null;
+                }
+                return CLASS_ID_NAMES.getOrDefault(new ClassID(str), "unknown classid");
+            }
+            default:
+                return null;
+        }
     }
 
-    private static String getNameFromClassID(String match) {
-        // TODO replace with ClassIDPredefined enum ...
-        for (Object[] obj : classIdMap) {
-            if (match.contains(((ClassIDPredefined) obj[0]).getClassID().toString())) {
-                return (String) obj[1];
+    private static void writeString(final StringBuilder sb, final String str) {
+        sb.append('"');
+        for (int i = 0; i < str.length(); i++) {
+            final char c = str.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\b': sb.append("\\b"); break;
+                case '\f': sb.append("\\f"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format(Locale.ROOT, "\\u%04x", (int)c));
+                    } else {
+                        sb.append(c);
+                    }
+                    break;
             }
         }
-        return "unknown classid";
+        sb.append('"');
     }
 
+    private static void newLine(final StringBuilder sb, final int depth) {
+        sb.append('\n');
+        for (int i = 0; i < depth; i++) {
+            sb.append(INDENT);
+        }
+    }
 
     /**
-     * LSSerializer ignores standalone in the xml declaration, therefore we need to parse
-     * the xml declaration separately
-     * @param is the xml inputstream
-     * @return the xml declaration
+     * The names of the table take precedence over the names of the predefined class ids
      */
-    private static String getXmlDeclaration(final InputStream is) throws IOException {
-        try (InputStreamReader isr = new InputStreamReader(is, Charset.forName("UTF-8"))) {
-            is.reset();
-
-            char[] buf = new char[1000];
-            isr.read(buf);
-
-            final Pattern p = Pattern.compile("^<\\?xml.*\\?>");
-            final Matcher m = p.matcher(new String(buf));
-            return (m.find()) ? m.group() : "<?xml version=\"1.0\" encoding=\"utf-8\"?>";
+    private static Map<ClassID, String> createClassIdNames() {
+        final Map<ClassID, String> names = new HashMap<>();
+        for (Object[] obj : classIdMap) {
+            names.putIfAbsent(((ClassIDPredefined)obj[0]).getClassID(), (String)obj[1]);
+        }
+        for (ClassIDPredefined cid : ClassIDPredefined.values()) {
+            names.putIfAbsent(cid.getClassID(), cid.name());
         }
+        return names;
     }
 }
@@ -0,0 +1,188 @@
+/* ====================================================================
+   Copyright 2017 Andreas Beeker (kiwiwings@apache.org)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package de.kiwiwings.poi.visualizer;
+
+import javafx.css.CssParser;
+import javafx.css.Declaration;
+import javafx.css.Rule;
+import javafx.css.Selector;
+import javafx.css.Stylesheet;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Combines the highlight patterns of a stylesheet into one alternation, so the text is scanned only once.
+ * At a given position, the first matching pattern in stylesheet order wins and the matched text is consumed,
+ * therefore context, which belongs to another token, needs to be expressed as lookbehind -
+ * preferably guarded by a lookahead for the first character, so the lookbehind is only evaluated at candidates.
+ * The highlighted region starts with the first group of the pattern (or the match) and ends with the match.
+ * <p>
+ * The tokenizer doesn't need a live code area, so it can be used and measured without the JavaFX toolkit.
+ */
+public final class CodeTokenizer {
+    private static final String PATTERN_RULE = "-fx-pattern";
+    private static final Pattern INLINE_FLAGS = Pattern.compile("^\\(\\?([a-zA-Z]+)\\)");
+
+    private final Pattern pattern;
+    private final String[] styleClasses;
+    // the group enclosing the alternative of a style
+    private final int[] styleGroups;
+    // the first group within the alternative or -1 if the pattern has no group
+    private final int[] highlightGroups;
+
+    /**
+     * The tokens of a text as parallel arrays of start/end offsets and style indexes
+     */
+    public static final class Tokens {
+        int count;
+        int[] starts = new int[64];
+        int[] ends = new int[64];
+        int[] styles = new int[64];
+
+        private Tokens() {
+        }
+
+        private void add(final int start, final int end, final int style) {
+            if (count == starts.length) {
+                final int newLen = count * 2;
+                starts = Arrays.copyOf(starts, newLen);
+                ends = Arrays.copyOf(ends, newLen);
+                styles = Arrays.copyOf(styles, newLen);
+            }
+            starts[count] = start;
+            ends[count] = end;
+            styles[count] = style;
+            count++;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * @param rules the style classes and their patterns in stylesheet order
+     */
+    public CodeTokenizer(final List<Map.Entry<String, String>> rules) {
+        final int size = rules.size();
+        styleClasses = new String[size];
+        styleGroups = new int[size];
+        highlightGroups = new int[size];
+
+        final StringBuilder sb = new StringBuilder();
+        int group = 1;
+        for (int i = 0; i < size; i++) {
+            final String regex = rules.get(i).getValue();
+            final int innerGroups = Pattern.compile(regex).matcher("").groupCount();
+
+            styleClasses[i] = rules.get(i).getKey();
+            styleGroups[i] = group;
+            highlightGroups[i] = (innerGroups > 0) ? group + 1 : -1;
+            group += innerGroups + 1;
+
+            // leading inline flags would apply to the following alternatives too, so they are scoped
+            final Matcher flags = INLINE_FLAGS.matcher(regex);
+            final String alternative = flags.find()
+                ? "(?" + flags.group(1) + ":" + regex.substring(flags.end()) + ")"
+                : regex;
+
+            sb.append(i > 0 ? "|(" : "(").append(alternative).append(')');
+        }
+
+        pattern = Pattern.compile(sb.toString());
+    }
+
+    /**
+     * Creates a tokenizer of the {@code -fx-pattern} declarations of the stylesheets
+     *
+     * @param stylesheets the urls of the stylesheets, e.g. of {@code CodeArea.getStylesheets()}
+     * @return the tokenizer
+     */
+    public static CodeTokenizer fromStylesheets(final List<String> stylesheets) {
+        return new CodeTokenizer(extractStyles(stylesheets));
+    }
+
+    public String getStyleClass(final int style) {
+        return styleClasses[style];
+    }
+
+    /**
+     * Finds the tokens in a single pass - the tokens are ordered and don't overlap
+     *
+     * @param text the text to be tokenized
+     * @return the tokens
+     */
+    public Tokens tokenize(final CharSequence text) {
+        final Tokens tokens = new Tokens();
+        if (styleClasses.length == 0) {
+            return tokens;
+        }
+
+        final Matcher mat = pattern.matcher(text);
+        while (mat.find()) {
+            int style = 0;
+            while (mat.start(styleGroups[style]) == -1) {
+                style++;
+            }
+            final int hg = highlightGroups[style];
+            final int start = (hg != -1 && mat.start(hg) != -1) ? mat.start(hg) : mat.start();
+            final int end = mat.end();
+            if (start < end) {
+                tokens.add(start, end, style);
+            }
+        }
+        return tokens;
+    }
+
+    private static List<Map.Entry<String, String>> extractStyles(final List<String> stylesheets) {
+        final List<Map.Entry<String, String>> styles = new ArrayList<>();
+
+        try {
+            for (final String ss : stylesheets) {
+                final Stylesheet style = new CssParser().parse(new URL(ss));
+
+                for (final Rule rule : style.getRules()) {
+                    String pattern = null;
+                    for (final Declaration cssProp : rule.getDeclarations()) {
+                        if (PATTERN_RULE.equals(cssProp.getProperty())) {
+                            pattern = cssProp.getParsedValue().getValue().toString();
+                            break;
+                        }
+                    }
+                    if (pattern == null) {
+                        continue;
+                    }
+                    for (final Selector sel : rule.getSelectors()) {
+                        final String styleClass = sel.toString().replace("*.", "");
+                        styles.add(new AbstractMap.SimpleEntry<>(styleClass, pattern));
+                    }
+                }
+            }
+        } catch (IOException e) {
+        }
+
+        return styles;
+    }
+}
@@ -16,9 +16,15 @@
 
 package de.kiwiwings.poi.visualizer;
 
+import de.kiwiwings.poi.visualizer.DocumentFragment.SourceType;
+import de.kiwiwings.poi.visualizer.treemodel.EmbeddedScanner;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
-import de.kiwiwings.poi.visualizer.treemodel.TreeModelFileSource;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadContext;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadException;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelRegistry;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.embed.swing.SwingNode;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -28,13 +34,19 @@ import javafx.scene.control.*;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.HBox;
 import javafx.scene.text.Text;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import org.apache.poi.util.IOUtils;
+import org.exbin.deltahex.EditationAllowed;
 import org.exbin.deltahex.swing.CodeArea;
+import org.exbin.utils.binary_data.BinaryData;
 import org.exbin.utils.binary_data.ByteArrayEditableData;
+import org.exbin.utils.binary_data.EditableBinaryData;
+import org.reactfx.EventSource;
 
+import javax.json.JsonObject;
 import javax.swing.*;
 import java.beans.PropertyChangeEvent;
 import java.io.File;
@@ -43,14 +55,32 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Locale;
 import java.util.ResourceBundle;
-import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class Controller implements Initializable {
 
     @FXML
     private TreeView<TreeModelEntry> treeDir;
 
+    @FXML
+    private TabPane viewTabs;
+
+    @FXML
+    private Tab binaryTab;
+
+    @FXML
+    private Tab xmlTab;
+
+    @FXML
+    private Tab propTab;
+
     @FXML
     private SwingNode deltaHexSN;
 
@@ -66,6 +96,24 @@ public class Controller implements Initializable {
     @SuppressWarnings({"FieldCanBeLocal", "unused"})
     private CodeFormatter propertiesAreaFormatter;
 
+    @FXML
+    private Button xmlMoreButton;
+
+    @FXML
+    private HBox loadPane;
+
+    @FXML
+    private ProgressBar loadProgress;
+
+    @FXML
+    private Label loadLabel;
+
+    @FXML
+    private Label cacheLabel;
+
+    @FXML
+    private CheckMenuItem preloadMenuItem;
+
 
     private Stage stage;
 
@@ -73,6 +121,40 @@ public class Controller implements Initializable {
 
     private final DocumentFragment fragment = new DocumentFragment();
 
+    private final ExecutorService loadExecutor = Executors.newSingleThreadExecutor(r -> {
+        final Thread th = new Thread(r, "poi-visualizer-loader");
+        th.setDaemon(true);
+        return th;
+    });
+
+    private Task<TreeModelNode> loadTask;
+
+    // loads the embedded documents of the opened file in the background
+    private EmbeddedScanner scanner;
+
+    private final ExecutorService activationExecutor = Executors.newSingleThreadExecutor(r -> {
+        final Thread th = new Thread(r, "poi-visualizer-activation");
+        th.setDaemon(true);
+        return th;
+    });
+
+    // selections while navigating through the tree are debounced, only the last one is activated
+    private final EventSource<TreeModelEntry> activations = new EventSource<>();
+
+    private Task<DocumentFragment> activationTask;
+
+    // the activated fragments of the recently visited entries
+    private final ActivationCache activationCache = new ActivationCache();
+
+    // the activated fragment, which is shown, and its entry - it's disposed when it's replaced and not cached
+    private DocumentFragment shownFragment;
+    private TreeModelEntry shownEntry;
+
+    // the views, which haven't been updated after a fragment change, because their tab wasn't selected
+    private final Set<Tab> staleViews = new HashSet<>();
+
+    private boolean renderPending;
+
 
     @FunctionalInterface
     private interface ConsumerEx<T> {
@@ -84,13 +166,17 @@ public class Controller implements Initializable {
     public void initialize(URL location, ResourceBundle resources) {
         addDeltaHex();
 
-        fragment.addPropertyChangeListener(this::updateCodeArea);
-        fragment.addPropertyChangeListener(this::updateProperties);
-        fragment.addPropertyChangeListener(this::updateXml);
+        fragment.addPropertyChangeListener(this::onFragmentChange);
+        viewTabs.getSelectionModel().selectedItemProperty().addListener((obs, oldTab, newTab) -> renderVisible());
 
         // reference code formatter because of garbage collection
         xmlAreaFormatter = new CodeFormatter(xmlArea);
         propertiesAreaFormatter = new CodeFormatter(propertiesArea);
+
+        activations.successionEnds(Duration.ofMillis(100)).subscribe(this::activate);
+        updateCacheLabel();
+
+        treeDir.setCellFactory(tv -> new PendingTreeCell());
     }
 
     void setStage(Stage stage) {
@@ -114,31 +200,65 @@ public class Controller implements Initializable {
         closeFile();
         workingDir = file.getParentFile();
 
-        TreeItem<TreeModelEntry> treeNode = new TreeItem<>();
-        final ServiceLoader<TreeModelFileSource> sl = ServiceLoader.load(TreeModelFileSource.class);
-        for (TreeModelFileSource src : sl) {
-            try {
-                src.load(treeNode, file);
-                treeDir.setRoot(treeNode);
-                stage.setTitle("POI Visualizer - <" + file.getName() + ">");
-                return;
-            } catch (TreeModelLoadException ex) {
-                // TODO: log
+        final LoadTask task = new LoadTask(file);
+        task.setOnSucceeded(e -> {
+            treeDir.setRoot(TreeModelTreeItem.createRoot(task.getValue()));
+            if (preloadMenuItem.isSelected()) {
+                scanner = new EmbeddedScanner();
+                scanner.scan(task.getValue());
             }
-        }
+            stage.setTitle("POI Visualizer - <" + file.getName() + ">");
+        });
+        task.setOnFailed(e ->
+            new Alert(AlertType.ERROR, task.getException().getMessage(), ButtonType.OK).showAndWait()
+        );
+        // a cancel after the loading has finished discards the loaded tree
+        task.setOnCancelled(e -> loadExecutor.submit(task::closeLoaded));
+
+        loadProgress.progressProperty().bind(task.progressProperty());
+        loadLabel.textProperty().bind(task.messageProperty());
+        loadPane.visibleProperty().bind(task.runningProperty());
+        loadPane.managedProperty().bind(task.runningProperty());
+
+        loadTask = task;
+        loadExecutor.submit(task);
+    }
 
-        new Alert(AlertType.ERROR, "file is not an Office file.", ButtonType.OK).showAndWait();
+    @SuppressWarnings("unused")
+    @FXML
+    private void cancelLoad() {
+        if (loadTask != null) {
+            // the loaders poll the cancel state, so don't interrupt the (possibly file channel reading) thread
+            loadTask.cancel(false);
+        }
     }
 
     @FXML
     void closeFile() {
+        cancelLoad();
+        loadTask = null;
+        cancelActivation();
+        activationCache.clear();
+        updateCacheLabel();
+        showFragment(null, null);
         stage.setTitle("POI Visualizer - <no file>");
-        TreeItem<TreeModelEntry> tr = treeDir.getRoot();
-        if (tr != null && tr.getValue() != null) {
-            IOUtils.closeQuietly(tr.getValue());
-        }
+        final EmbeddedScanner oldScanner = scanner;
+        scanner = null;
+        final TreeItem<TreeModelEntry> tr = treeDir.getRoot();
+        final TreeModelNode oldRoot = (tr instanceof TreeModelTreeItem) ? ((TreeModelTreeItem)tr).getNode() : null;
+        // waiting for the scanner could block the ui, so the document is closed by the loader thread -
+        // a following load is queued behind it
+        loadExecutor.submit(() -> {
+            if (oldScanner != null) {
+                oldScanner.close();
+            }
+            if (oldRoot != null) {
+                // closes the entries and deletes the temporary files of the document
+                IOUtils.closeQuietly(oldRoot::closeDocument);
+            }
+        });
         treeDir.setRoot(null);
-        fragment.setProperties("");
+        fragment.setProperties(null);
     }
 
 
@@ -153,7 +273,13 @@ public class Controller implements Initializable {
     private void exportBinary(final ActionEvent event) {
         exportFile("Save Binary Data", (file) -> {
             try (FileOutputStream fos = new FileOutputStream(file)) {
-                getCodeArea().getData().saveToStream(fos);
+                // the binary is shared with the hex view, so edits are included, even if the view is stale
+                final BinaryData data = fragment.getBinarySource().getBinaryData();
+                if (data != null) {
+                    data.saveToStream(fos);
+                }
+            } catch (TreeModelLoadException e) {
+                throw new IOException(e);
             }
         });
     }
@@ -163,7 +289,17 @@ public class Controller implements Initializable {
     private void exportXML(final ActionEvent event) {
         exportFile("Save XML Data", (file) -> {
             try (OutputStreamWriter osw = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
-                osw.write(xmlArea.getText());
+                // the xml area might only contain the first chunks, so the whole xml is indented again
+                final XmlIndenter indenter = fragment.newXmlIndenter();
+                if (indenter == null) {
+                    osw.write(xmlArea.getText());
+                } else {
+                    try (XmlIndenter ind = indenter) {
+                        while (ind.hasMore()) {
+                            osw.write(ind.next());
+                        }
+                    }
+                }
             }
         });
     }
@@ -173,7 +309,8 @@ public class Controller implements Initializable {
     private void exportProperties(final ActionEvent event) {
         exportFile("Save Properties", (file) -> {
             try (OutputStreamWriter osw = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
-                osw.write(fragment.getProperties());
+                final JsonObject props = fragment.getProperties();
+                osw.write(props == null ? "" : props.toString());
             }
         });
     }
@@ -213,8 +350,7 @@ public class Controller implements Initializable {
             final MultipleSelectionModel<TreeItem<TreeModelEntry>> sm = treeDir.getSelectionModel();
             final TreeModelEntry tme = sm.isEmpty() ? null : sm.getSelectedItem().getValue();
             if (tme != null) {
-                tme.activate(fragment);
-                fragment.notifyListeners();
+                activations.push(tme);
             }
         }
     }
@@ -227,42 +363,316 @@ public class Controller implements Initializable {
         if (ti != null) {
             final TreeModelEntry tme = ti.getValue();
             if (tme != null) {
-                tme.activate(fragment);
-                fragment.notifyListeners();
+                activations.push(tme);
             }
         }
     }
 
-    @SuppressWarnings("unused")
-    private void updateCodeArea(PropertyChangeEvent evt) {
+    private void activate(final TreeModelEntry tme) {
+        cancelActivation();
+
+        final DocumentFragment cached = activationCache.get(tme);
+        if (cached != null) {
+            showFragment(tme, cached);
+            return;
+        }
+
+        final Task<DocumentFragment> task = new ActivationTask(tme, isVisible(xmlTab));
+        task.setOnSucceeded(e -> {
+            // a superseded task might have finished before it was cancelled
+            if (task == activationTask) {
+                activationTask = null;
+                activationCache.put(tme, task.getValue());
+                updateCacheLabel();
+                showFragment(tme, task.getValue());
+            } else {
+                task.getValue().dispose();
+            }
+        });
+        task.setOnFailed(e -> {
+            // failures aren't cached, so the entry is activated again on the next selection
+            if (task == activationTask) {
+                activationTask = null;
+                clearFragment();
+                final Throwable ex = task.getException();
+                new Alert(AlertType.ERROR, "Can't activate '" + tme + "': " + ex.getMessage(), ButtonType.OK).show();
+            }
+        });
+
+        activationTask = task;
+        activationExecutor.submit(task);
+    }
+
+    private void updateCacheLabel() {
+        cacheLabel.setText(String.format(Locale.ROOT, "Cache: %d entries, %.1f of %.1f MB",
+            activationCache.getCount(), activationCache.getSize() / 1048576., activationCache.getMaxSize() / 1048576.));
+    }
+
+    /**
+     * Clears the views, so they don't show the data of the previously activated entry
+     */
+    private void clearFragment() {
+        final DocumentFragment empty = new DocumentFragment();
+        empty.setBinarySource(ByteArrayEditableData::new);
+        empty.setSourceType(SourceType.empty);
+        showFragment(null, empty);
+    }
+
+    /**
+     * Shows an activated fragment - the previous one is disposed, unless it's still cached
+     *
+     * @param entry the activated entry or {@code null}
+     * @param activated the fragment or {@code null} to only dispose the previous one
+     */
+    private void showFragment(final TreeModelEntry entry, final DocumentFragment activated) {
+        final DocumentFragment previous = shownFragment;
+        final boolean previousCached = shownEntry != null && activationCache.get(shownEntry) == previous;
+        shownFragment = activated;
+        shownEntry = entry;
+        if (activated != null) {
+            fragment.copyFrom(activated);
+            fragment.notifyListeners();
+        }
+        if (previous != null && previous != activated && !previousCached) {
+            previous.dispose();
+        }
+    }
+
+    private void cancelActivation() {
+        if (activationTask != null) {
+            activationTask.cancel(false);
+            activationTask = null;
+        }
+    }
+
+    /**
+     * Marks the views of the changed parts as stale - the events of one notification are coalesced
+     * into one render pass, which only updates the visible view. Hidden views are rendered on selection.
+     */
+    private void onFragmentChange(final PropertyChangeEvent evt) {
+        switch (evt.getPropertyName()) {
+            case DocumentFragment.BINARY:
+                staleViews.add(binaryTab);
+                staleViews.add(xmlTab);
+                break;
+            case DocumentFragment.SOURCE_TYPE:
+                staleViews.add(xmlTab);
+                break;
+            case DocumentFragment.PROPERTIES:
+                staleViews.add(propTab);
+                break;
+            default:
+                break;
+        }
+
+        if (!renderPending) {
+            renderPending = true;
+            Platform.runLater(this::renderVisible);
+        }
+    }
+
+    private void renderVisible() {
+        renderPending = false;
+        final Tab tab = viewTabs.getSelectionModel().getSelectedItem();
+        if (!staleViews.remove(tab)) {
+            return;
+        }
+        if (tab == binaryTab) {
+            updateCodeArea();
+        } else if (tab == xmlTab) {
+            updateXml();
+        } else if (tab == propTab) {
+            updateProperties();
+        }
+    }
+
+    private boolean isVisible(final Tab tab) {
+        return viewTabs.getSelectionModel().getSelectedItem() == tab;
+    }
+
+    private void updateCodeArea() {
         try {
-            ByteArrayEditableData data = fragment.getBinarySource().getBinaryData();
+            BinaryData data = fragment.getBinarySource().getBinaryData();
             if (data != null) {
+                // paged data of large streams is read-only
+                getCodeArea().setEditationAllowed(data instanceof EditableBinaryData
+                    ? EditationAllowed.ALLOWED : EditationAllowed.READ_ONLY);
                 getCodeArea().setData(data);
             }
         } catch (IOException | TreeModelLoadException ex) {
-            // todo
+            // the activation has already reported the failure, so only the stale data is removed
+            getCodeArea().setData(new ByteArrayEditableData());
         }
     }
 
-    @SuppressWarnings("unused")
-    private void updateProperties(PropertyChangeEvent evt) {
-        final String props = fragment.getProperties();
-        propertiesArea.replaceText(CodeIndenter.indentJson(props));
+    private void updateProperties() {
+        propertiesArea.replaceText(fragment.getIndentedProperties());
+    }
+
+    /**
+     * Builds the tree of a file off the JavaFX application thread.
+     * The tree is only attached to the tree view, after it has been fully loaded.
+     */
+    private static class LoadTask extends Task<TreeModelNode> {
+        private final File file;
+        // the loaded tree, so it can be closed, if the task is cancelled after loading it
+        private final AtomicReference<TreeModelNode> loaded = new AtomicReference<>();
+
+        LoadTask(final File file) {
+            this.file = file;
+        }
+
+        @Override
+        protected TreeModelNode call() throws TreeModelLoadException {
+            updateMessage("Loading " + file.getName() + " ...");
+            final TreeModelLoadContext context = new TreeModelLoadContext(this::updateProgress, this::isCancelled);
+
+            final TreeModelNode treeNode = TreeModelRegistry.load(file, context);
+            loaded.set(treeNode);
+            if (isCancelled()) {
+                closeLoaded();
+                return null;
+            }
+            return treeNode;
+        }
+
+        /**
+         * Closes the loaded document of a cancelled task and deletes its temporary files
+         */
+        void closeLoaded() {
+            final TreeModelNode treeNode = loaded.getAndSet(null);
+            if (treeNode != null) {
+                IOUtils.closeQuietly(treeNode::closeDocument);
+            }
+        }
+    }
+
+    private void updateXml() {
+        if (fragment.hasIndentedXml()) {
+            xmlArea.replaceText(fragment.getIndentedXml());
+            updateXmlMore();
+            return;
+        }
+
+        // the activation didn't indent the xml, as its view wasn't visible - the first chunk is indented
+        // by the activation worker into a copy of the fragment, which is taken over, if it's still current
+        final DocumentFragment next = new DocumentFragment();
+        next.copyFrom(fragment);
+        final int generation = fragment.getXmlGeneration();
+        xmlArea.replaceText("");
+        xmlMoreButton.setVisible(false);
+        xmlMoreButton.setManaged(false);
+
+        final Task<String> task = new Task<String>() {
+            @Override
+            protected String call() {
+                return next.getIndentedXml();
+            }
+        };
+        task.setOnSucceeded(e -> {
+            if (fragment.getXmlGeneration() == generation) {
+                fragment.copyFrom(next);
+                xmlArea.replaceText(task.getValue());
+                updateXmlMore();
+            } else {
+                IOUtils.closeQuietly(next.getXmlIndenter());
+            }
+        });
+        activationExecutor.submit(task);
+    }
+
+    private void updateXmlMore() {
+        final boolean hasMore = fragment.hasMoreXml();
+        xmlMoreButton.setVisible(hasMore);
+        xmlMoreButton.setManaged(hasMore);
+        xmlMoreButton.setDisable(false);
     }
 
     @SuppressWarnings("unused")
-    private void updateXml(PropertyChangeEvent evt) {
-        if (fragment.getSourceType() != DocumentFragment.SourceType.text_xml) {
-            xmlArea.clear();
-        } else {
-            // can't use getDataInputStream because of deltahex error in released artifact - fixed in trunk ...
-            try {
-                final byte[] xmlInput = fragment.getBinarySource().getBinaryData().getData();
-                xmlArea.replaceText(CodeIndenter.indentXml(xmlInput));
-            } catch (IOException|TreeModelLoadException e) {
-                xmlArea.clear();
+    @FXML
+    private void loadMoreXml() {
+        if (!fragment.hasMoreXml()) {
+            return;
+        }
+
+        // the indenter of a cached fragment was handed over on its first display,
+        // so a new one is positioned behind the displayed first chunk
+        final XmlIndenter current = fragment.getXmlIndenter();
+        final XmlIndenter indenter = (current != null) ? current : fragment.newXmlIndenter();
+        if (indenter == null) {
+            return;
+        }
+        final int generation = fragment.getXmlGeneration();
+
+        xmlMoreButton.setDisable(true);
+        final Task<String> task = new Task<String>() {
+            @Override
+            protected String call() {
+                if (current == null) {
+                    indenter.next();
+                }
+                return indenter.next();
+            }
+        };
+        task.setOnSucceeded(e -> {
+            // ignore the chunk, if another entry has been activated in the meantime
+            if (fragment.getXmlGeneration() == generation) {
+                fragment.setXmlIndenter(indenter);
+                xmlArea.appendText(task.getValue());
+                updateXmlMore();
+            } else if (current == null) {
+                indenter.close();
             }
+        });
+        // the activation worker is reused, so the indenter isn't accessed concurrently by a new activation
+        activationExecutor.submit(task);
+    }
+
+    /**
+     * Activates an entry into a fresh fragment off the JavaFX application thread
+     * and prepares the renderings, so the listeners only need to apply them.
+     * The xml is only indented in advance, if its view is visible - otherwise the first chunk
+     * is indented when the tab is selected.
+     * A cancelled task is superseded by a newer selection and its result is discarded.
+     * Errors of the activation fail the task, so the views are cleared and the error is shown.
+     */
+    private static class ActivationTask extends Task<DocumentFragment> {
+        private final TreeModelEntry entry;
+        private final boolean indentXml;
+
+        ActivationTask(final TreeModelEntry entry, final boolean indentXml) {
+            this.entry = entry;
+            this.indentXml = indentXml;
+        }
+
+        @Override
+        protected DocumentFragment call() throws IOException, TreeModelLoadException {
+            final DocumentFragment next = new DocumentFragment();
+            entry.activate(next);
+            if (isCancelled()) {
+                return null;
+            }
+            // a failure is reported by the failed handler of the task
+            next.getBinarySource().getBinaryData();
+            if (isCancelled()) {
+                return discard(next);
+            }
+            next.getIndentedProperties();
+            if (isCancelled()) {
+                return discard(next);
+            }
+            if (indentXml) {
+                next.getIndentedXml();
+            }
+            return isCancelled() ? discard(next) : next;
+        }
+
+        /**
+         * Disposes the fragment of a superseded task, as its result isn't handled
+         */
+        private static DocumentFragment discard(final DocumentFragment next) {
+            next.dispose();
+            return null;
         }
     }
 }
@@ -17,27 +17,50 @@
 package de.kiwiwings.poi.visualizer;
 
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadException;
-import org.apache.commons.lang3.StringUtils;
-import org.exbin.utils.binary_data.ByteArrayEditableData;
+import org.apache.poi.util.IOUtils;
+import org.exbin.utils.binary_data.BinaryData;
 
-import javax.json.*;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.io.IOException;
-import java.io.StringReader;
-import java.util.Map.Entry;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
 
 public class DocumentFragment {
     public enum SourceType {
         empty, octet, text_xml, text_plain, image_jpeg, image_png
     }
 
+    /** the property name of the change event, when the binary data has changed */
+    public static final String BINARY = "binary";
+    /** the property name of the change event, when the properties have changed */
+    public static final String PROPERTIES = "properties";
+    /** the property name of the change event, when the source type has changed */
+    public static final String SOURCE_TYPE = "sourceType";
+
     private BinarySource binarySource;
-    private ByteArrayEditableData cachedBinary;
+    private BinaryData cachedBinary;
     private String fileName;
-    private String properties;
+    private JsonObject properties;
     private SourceType sourceType;
 
+    // renderings are cached, so they can be prepared off the JavaFX application thread
+    private String indentedProperties;
+    private String indentedXml;
+    // provides the remaining chunks of large xml parts
+    private XmlIndenter xmlIndenter;
+    // the xml has more chunks, even if the indenter has been handed over to another fragment
+    private boolean moreXml;
+    // changes, when the xml is reset, to detect outdated chunks
+    private int xmlGeneration;
+
+    // the changes since the last notification
+    private final Set<String> changes = new LinkedHashSet<>();
+
     private PropertyChangeSupport mPcs = new PropertyChangeSupport(this);
 
     public void
@@ -50,8 +73,16 @@ public class DocumentFragment {
         mPcs.removePropertyChangeListener(listener);
     }
 
+    /**
+     * Fires one event per changed part since the last notification -
+     * the event property names are {@link #BINARY}, {@link #PROPERTIES} and {@link #SOURCE_TYPE}
+     */
     public void notifyListeners() {
-        mPcs.firePropertyChange("DocumentFragment", null, null);
+        final String[] names = changes.toArray(new String[0]);
+        changes.clear();
+        for (String name : names) {
+            mPcs.firePropertyChange(name, null, null);
+        }
     }
 
     public BinarySource getBinarySource() {
@@ -61,6 +92,8 @@ public class DocumentFragment {
     public void setBinarySource(final BinarySource binarySource) {
         this.binarySource = binarySource;
         this.cachedBinary = null;
+        changes.add(BINARY);
+        resetXml();
     }
 
     public SourceType getSourceType() {
@@ -69,6 +102,8 @@ public class DocumentFragment {
 
     public void setSourceType(final SourceType sourceType) {
         this.sourceType = sourceType;
+        changes.add(SOURCE_TYPE);
+        resetXml();
     }
 
     public String getFileName() {
@@ -79,40 +114,185 @@ public class DocumentFragment {
         this.fileName = fileName;
     }
 
-    public String getProperties() {
+    /**
+     * @return the properties of the activated entry or {@code null}, if there are none
+     */
+    public JsonObject getProperties() {
         return properties;
     }
 
-    public void setProperties(final String properties) {
+    public void setProperties(final JsonObject properties) {
         this.properties = properties;
+        this.indentedProperties = null;
+        changes.add(PROPERTIES);
     }
 
-    public void mergeProperties(final String properties) {
-        if (StringUtils.isEmpty(properties)) {
+    /**
+     * Adds the given properties to the current ones - existing keys are replaced
+     *
+     * @param properties the properties to be added, can be {@code null}
+     */
+    public void mergeProperties(final JsonObject properties) {
+        if (properties == null || properties.isEmpty()) {
             return;
         }
 
-        if (StringUtils.isEmpty(getProperties())) {
+        if (this.properties == null || this.properties.isEmpty()) {
             setProperties(properties);
             return;
         }
 
-        final JsonReaderFactory fact = Json.createReaderFactory(null);
-        final JsonReader r1 = fact.createReader(new StringReader(getProperties()));
-        final JsonObjectBuilder jbf = Json.createObjectBuilder(r1.readObject());
+        final JsonObjectBuilder jbf = Json.createObjectBuilder(this.properties);
+        properties.forEach(jbf::add);
+        setProperties(jbf.build());
+    }
 
-        final JsonReader r2 = fact.createReader(new StringReader(getProperties()));
-        final JsonObject obj2 = r2.readObject();
+    /**
+     * @return the indented properties - this is calculated once per activation
+     */
+    public String getIndentedProperties() {
+        if (indentedProperties == null) {
+            indentedProperties = CodeIndenter.indentJson(properties);
+        }
+        return indentedProperties;
+    }
 
-        for (Entry<String, JsonValue> jv : obj2.entrySet()) {
-            jbf.add(jv.getKey(), jv.getValue());
+    /**
+     * @return the first chunk of the indented xml, if the binary data is xml, otherwise an empty string -
+     *   this is calculated once per activation
+     */
+    public String getIndentedXml() {
+        if (indentedXml == null) {
+            xmlIndenter = newXmlIndenter();
+            indentedXml = (xmlIndenter == null) ? "" : xmlIndenter.next();
+            moreXml = xmlIndenter != null && xmlIndenter.hasMore();
         }
+        return indentedXml;
+    }
 
-        setProperties(jbf.build().toString());
+    /**
+     * @return true, if the first chunk of the xml has already been indented
+     */
+    boolean hasIndentedXml() {
+        return indentedXml != null;
+    }
+
+    /**
+     * @return true, if the xml has further chunks after the displayed ones
+     */
+    boolean hasMoreXml() {
+        return (xmlIndenter != null) ? xmlIndenter.hasMore() : moreXml;
+    }
+
+    /**
+     * @return the generation of the xml, which changes on each reset of the xml
+     */
+    int getXmlGeneration() {
+        return xmlGeneration;
+    }
+
+    /**
+     * @return the indenter of the displayed xml, which provides the further chunks,
+     *   or {@code null} if the binary data is not xml
+     */
+    XmlIndenter getXmlIndenter() {
+        return xmlIndenter;
+    }
+
+    /**
+     * Takes over an indenter, which has been positioned behind the displayed chunks,
+     * e.g. when the indenter of a cached fragment was already handed over.
+     */
+    void setXmlIndenter(final XmlIndenter xmlIndenter) {
+        if (this.xmlIndenter != xmlIndenter) {
+            IOUtils.closeQuietly(this.xmlIndenter);
+            this.xmlIndenter = xmlIndenter;
+        }
     }
 
+    /**
+     * @return a new indenter for the xml data, e.g. for exporting the whole xml,
+     *   or {@code null} if the binary data is not xml
+     */
+    XmlIndenter newXmlIndenter() {
+        if (sourceType != SourceType.text_xml) {
+            return null;
+        }
+        try {
+            final BinaryData data = getCachedBinary();
+            return (data == null || data.isEmpty()) ? null : new XmlIndenter(new BinaryDataInputStream(data));
+        } catch (IOException|TreeModelLoadException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Takes over the state of a fragment, which was activated in the background.
+     * The listeners aren't copied and need to be notified separately, only the changed parts are notified.
+     * The xml indenter is handed over, as it's consumed by loading further chunks -
+     * the other fragment only remembers, if there are further chunks.
+     *
+     * @param other the activated fragment
+     */
+    public void copyFrom(final DocumentFragment other) {
+        if (binarySource != other.binarySource || cachedBinary != other.cachedBinary) {
+            changes.add(BINARY);
+        }
+        if (!Objects.equals(properties, other.properties)) {
+            changes.add(PROPERTIES);
+        }
+        if (sourceType != other.sourceType) {
+            changes.add(SOURCE_TYPE);
+        }
+        binarySource = other.binarySource;
+        cachedBinary = other.cachedBinary;
+        fileName = other.fileName;
+        properties = other.properties;
+        sourceType = other.sourceType;
+        indentedProperties = other.indentedProperties;
+        resetXml();
+        indentedXml = other.indentedXml;
+        xmlIndenter = other.xmlIndenter;
+        moreXml = other.hasMoreXml();
+        other.xmlIndenter = null;
+    }
+
+    /**
+     * Releases the resources of the activated data, e.g. the open stream of paged data.
+     * The data stays readable, the released resources are acquired again on the next access.
+     */
+    public void dispose() {
+        if (cachedBinary != null) {
+            cachedBinary.dispose();
+        }
+    }
+
+    /**
+     * @return the estimated memory size of the activated data and the renderings in bytes
+     */
+    long estimateSize() {
+        long size = 1024;
+        if (cachedBinary instanceof PagedBinaryData) {
+            size += ((PagedBinaryData)cachedBinary).getMaxCachedSize();
+        } else if (cachedBinary != null) {
+            size += cachedBinary.getDataSize();
+        }
+        // the properties are kept as json object and as indented string of (two byte) chars
+        final int propLen = (indentedProperties != null) ? indentedProperties.length() : 0;
+        final int xmlLen = (indentedXml != null) ? indentedXml.length() : 0;
+        size += 4L * propLen + 2L * xmlLen;
+        return size;
+    }
+
+    private void resetXml() {
+        IOUtils.closeQuietly(xmlIndenter);
+        xmlIndenter = null;
+        indentedXml = null;
+        moreXml = false;
+        xmlGeneration++;
+    }
 
-    private ByteArrayEditableData getCachedBinary() throws IOException, TreeModelLoadException {
+    private BinaryData getCachedBinary() throws IOException, TreeModelLoadException {
         if (cachedBinary == null && binarySource != null) {
             cachedBinary = binarySource.getBinaryData();
         }
@@ -0,0 +1,242 @@
+/* ====================================================================
+   Copyright 2017 Andreas Beeker (kiwiwings@apache.org)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package de.kiwiwings.poi.visualizer;
+
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadContext;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelRegistry;
+import org.apache.poi.util.IOUtils;
+import org.exbin.utils.binary_data.BinaryData;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Command line entry point, which dumps the entry trees of many files without the JavaFX toolkit.
+ * The files are loaded in parallel on a work-stealing pool and each node is written as one json line
+ * with its path, type, binary size and properties. The per-file timing and the throughput are reported
+ * on stderr and failing files don't stop the run.
+ * <p>
+ * Usage: {@code POIVisualizerBatch [-t threads] [-o output.jsonl] [--no-properties] <file|directory|glob>...}
+ */
+public class POIVisualizerBatch {
+    private static final String GLOB_CHARS = "*?[{";
+
+    private final Writer out;
+    private final PrintStream log;
+    private final boolean withProperties;
+
+    private final AtomicInteger filesOk = new AtomicInteger();
+    private final AtomicInteger filesFailed = new AtomicInteger();
+    private final AtomicLong nodes = new AtomicLong();
+
+    POIVisualizerBatch(final Writer out, final PrintStream log, final boolean withProperties) {
+        this.out = out;
+        this.log = log;
+        this.withProperties = withProperties;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        String output = null;
+        boolean withProperties = true;
+        final List<String> inputs = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-t":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-o":
+                    output = args[++i];
+                    break;
+                case "--no-properties":
+                    withProperties = false;
+                    break;
+                default:
+                    inputs.add(args[i]);
+                    break;
+            }
+        }
+
+        if (inputs.isEmpty()) {
+            System.err.println("Usage: POIVisualizerBatch [-t threads] [-o output.jsonl] [--no-properties] <file|directory|glob>...");
+            System.exit(1);
+        }
+
+        final List<Path> files = resolveInputs(inputs);
+        final OutputStream os = (output == null) ? System.out : new FileOutputStream(output);
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8))) {
+            new POIVisualizerBatch(w, System.err, withProperties).run(files, threads);
+        }
+    }
+
+    /**
+     * Expands the directories recursively and the globs to the matching files
+     */
+    static List<Path> resolveInputs(final List<String> inputs) throws IOException {
+        final Set<Path> files = new LinkedHashSet<>();
+        for (final String input : inputs) {
+            final int globIdx = indexOfGlob(input);
+            if (globIdx == -1) {
+                final Path p = Paths.get(input);
+                if (Files.isDirectory(p)) {
+                    addFiles(files, p, null);
+                } else {
+                    files.add(p);
+                }
+            } else {
+                // the base directory is the part before the first path segment with glob characters
+                final int sepIdx = Math.max(input.lastIndexOf('/', globIdx), input.lastIndexOf(File.separatorChar, globIdx));
+                final Path base = Paths.get(sepIdx == -1 ? "." : input.substring(0, sepIdx + 1));
+                final String pattern = (sepIdx == -1) ? input : input.substring(sepIdx + 1);
+                addFiles(files, base, base.getFileSystem().getPathMatcher("glob:" + pattern));
+            }
+        }
+        return new ArrayList<>(files);
+    }
+
+    private static int indexOfGlob(final String input) {
+        for (int i = 0; i < input.length(); i++) {
+            if (GLOB_CHARS.indexOf(input.charAt(i)) != -1) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void addFiles(final Set<Path> files, final Path base, final PathMatcher matcher) throws IOException {
+        try (Stream<Path> walk = Files.walk(base)) {
+            files.addAll(walk
+                .filter(Files::isRegularFile)
+                .filter(p -> matcher == null || matcher.matches(base.relativize(p)))
+                .collect(Collectors.toList()));
+        }
+    }
+
+    void run(final List<Path> files, final int threads) throws IOException {
+        final long start = System.nanoTime();
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            final List<ForkJoinTask<?>> tasks = files.stream()
+                .map(f -> pool.submit(() -> dumpFile(f)))
+                .collect(Collectors.toList());
+            tasks.forEach(ForkJoinTask::join);
+        } finally {
+            pool.shutdown();
+        }
+        out.flush();
+
+        final double secs = Math.max(System.nanoTime() - start, 1) / 1e9;
+        log.printf(Locale.ROOT, "files: %d ok, %d failed, nodes: %d, time: %.2f s, %.1f files/s, %.1f nodes/s%n",
+            filesOk.get(), filesFailed.get(), nodes.get(), secs, files.size() / secs, nodes.get() / secs);
+    }
+
+    private void dumpFile(final Path file) {
+        final long start = System.nanoTime();
+        // the lines of a file are written together, so the files don't interleave
+        final StringBuilder lines = new StringBuilder();
+        TreeModelNode root = null;
+        try {
+            root = TreeModelRegistry.load(file.toFile(), new TreeModelLoadContext());
+            final long count = dumpNode(lines, file.toString(), root, "");
+            write(lines);
+            nodes.addAndGet(count);
+            filesOk.incrementAndGet();
+            log.printf(Locale.ROOT, "%s: %d nodes, %d ms%n", file, count, (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception | StackOverflowError e) {
+            filesFailed.incrementAndGet();
+            lines.setLength(0);
+            lines.append(Json.createObjectBuilder()
+                .add("file", file.toString())
+                .add("error", String.valueOf(e.getMessage()))
+                .build()).append('\n');
+            writeQuietly(lines);
+            log.printf(Locale.ROOT, "%s: failed after %d ms - %s%n", file, (System.nanoTime() - start) / 1_000_000, e);
+        } finally {
+            if (root != null) {
+                IOUtils.closeQuietly(root::closeDocument);
+            }
+        }
+    }
+
+    /**
+     * Activates the node and writes its record - the children are visited after the activation,
+     * as the activation of embedded documents attaches their models
+     */
+    private long dumpNode(final StringBuilder lines, final String file, final TreeModelNode node, final String parentPath) {
+        final TreeModelEntry entry = node.getValue();
+        final String name = (entry == null) ? "" : entry.toString();
+        final String path = parentPath.isEmpty() ? name : parentPath + "/" + name;
+
+        final JsonObjectBuilder job = Json.createObjectBuilder()
+            .add("file", file)
+            .add("path", path)
+            .add("type", (entry == null) ? "" : entry.getClass().getSimpleName());
+
+        if (entry != null) {
+            final DocumentFragment fragment = new DocumentFragment();
+            try {
+                entry.activate(fragment);
+                final BinaryData data = fragment.getBinarySource().getBinaryData();
+                job.add("size", (data == null) ? 0 : data.getDataSize());
+                final JsonObject props = fragment.getProperties();
+                if (withProperties && props != null) {
+                    job.add("properties", props);
+                }
+            } catch (Exception e) {
+                job.add("error", String.valueOf(e.getMessage()));
+            } finally {
+                // the paged data of big streams keeps its stream open
+                fragment.dispose();
+            }
+        }
+        lines.append(job.build()).append('\n');
+
+        long count = 1;
+        for (final TreeModelNode child : node.getChildren()) {
+            count += dumpNode(lines, file, child, path);
+        }
+        return count;
+    }
+
+    private void write(final CharSequence lines) throws IOException {
+        synchronized (out) {
+            out.append(lines);
+        }
+    }
+
+    private void writeQuietly(final CharSequence lines) {
+        try {
+            write(lines);
+        } catch (IOException e) {
+            log.println("can't write output - " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/* ====================================================================
+   Copyright 2017 Andreas Beeker (kiwiwings@apache.org)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package de.kiwiwings.poi.visualizer;
+
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.poi.util.IOUtils;
+import org.exbin.utils.binary_data.BinaryData;
+import org.exbin.utils.binary_data.ByteArrayEditableData;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read-only binary data, which doesn't copy the underlying stream into memory.
+ * Only the pages of the requested window, e.g. the visible lines of the hex view, are read and
+ * a few of them are kept in a LRU cache.
+ */
+public class PagedBinaryData implements BinaryData {
+
+    @FunctionalInterface
+    public interface StreamSource {
+        InputStream openStream() throws IOException;
+    }
+
+    private static final int PAGE_SIZE = 64 * 1024;
+    private static final int MAX_PAGES = 16;
+
+    private final StreamSource source;
+    private final long size;
+
+    private final Map<Long, byte[]> pages = new LinkedHashMap<Long, byte[]>(MAX_PAGES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+            return size() > MAX_PAGES;
+        }
+    };
+
+    // keep the stream open between page reads, so forward scrolling doesn't need to skip from the start again
+    private InputStream stream;
+    private long streamPos;
+
+    /**
+     * @param source opens the underlying stream - it's called again, when reading backwards
+     * @param size the size of the stream
+     */
+    public PagedBinaryData(final StreamSource source, final long size) {
+        this.source = source;
+        this.size = size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public long getDataSize() {
+        return size;
+    }
+
+    @Override
+    public synchronized byte getByte(final long position) {
+        final byte[] page = getPage(position / PAGE_SIZE);
+        return page[(int)(position % PAGE_SIZE)];
+    }
+
+    /**
+     * @return the maximum number of bytes, which are kept in memory by the page cache
+     */
+    public long getMaxCachedSize() {
+        return Math.min(size, (long)PAGE_SIZE * MAX_PAGES);
+    }
+
+    @Override
+    public BinaryData copy() {
+        return copy(0, size);
+    }
+
+    @Override
+    public BinaryData copy(final long startFrom, final long length) {
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Can't copy more than 2GB into memory");
+        }
+        final byte[] data = new byte[(int)length];
+        copyToArray(startFrom, data, 0, (int)length);
+        return new ByteArrayEditableData(data);
+    }
+
+    @Override
+    public synchronized void copyToArray(final long startFrom, final byte[] target, final int offset, final int length) {
+        long pos = startFrom;
+        int off = offset;
+        int remaining = length;
+        while (remaining > 0) {
+            final byte[] page = getPage(pos / PAGE_SIZE);
+            final int pageOff = (int)(pos % PAGE_SIZE);
+            final int len = Math.min(remaining, page.length - pageOff);
+            System.arraycopy(page, pageOff, target, off, len);
+            pos += len;
+            off += len;
+            remaining -= len;
+        }
+    }
+
+    @Override
+    public void saveToStream(final OutputStream outputStream) throws IOException {
+        try (InputStream is = getDataInputStream()) {
+            IOUtils.copy(is, outputStream);
+        }
+    }
+
+    @Override
+    public InputStream getDataInputStream() {
+        try {
+            return new BoundedInputStream(source.openStream(), size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void dispose() {
+        pages.clear();
+        closeStream();
+    }
+
+    private byte[] getPage(final long pageIdx) {
+        byte[] page = pages.get(pageIdx);
+        if (page == null) {
+            page = readPage(pageIdx);
+            pages.put(pageIdx, page);
+        }
+        return page;
+    }
+
+    private byte[] readPage(final long pageIdx) {
+        final long pageStart = pageIdx * PAGE_SIZE;
+        if (pageStart >= size) {
+            throw new IndexOutOfBoundsException("position " + pageStart + " beyond data size " + size);
+        }
+
+        try {
+            if (stream == null || pageStart < streamPos) {
+                closeStream();
+                stream = source.openStream();
+                streamPos = 0;
+            }
+            if (IOUtils.skipFully(stream, pageStart - streamPos) < pageStart - streamPos) {
+                throw new IOException("stream ended before position " + pageStart);
+            }
+            streamPos = pageStart;
+
+            final byte[] page = new byte[(int)Math.min(PAGE_SIZE, size - pageStart)];
+            final int readBytes = IOUtils.readFully(stream, page);
+            if (readBytes < page.length) {
+                throw new IOException("stream ended before position " + (pageStart + page.length));
+            }
+            streamPos += readBytes;
+            return page;
+        } catch (IOException e) {
+            closeStream();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void closeStream() {
+        IOUtils.closeQuietly(stream);
+        stream = null;
+        streamPos = 0;
+    }
+}
@@ -0,0 +1,50 @@
+/* ====================================================================
+   Copyright 2017 Andreas Beeker (kiwiwings@apache.org)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package de.kiwiwings.poi.visualizer;
+
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
+import javafx.scene.control.ContentDisplay;
+import javafx.scene.control.Label;
+import javafx.scene.control.TreeCell;
+import javafx.scene.control.TreeItem;
+
+/**
+ * Tree cell, which marks the entries whose embedded document is loaded in the background.
+ * The cells are updated by the change events of the {@link TreeModelTreeItem}s.
+ */
+final class PendingTreeCell extends TreeCell<TreeModelEntry> {
+    private final Label pendingLabel = new Label("pending");
+
+    PendingTreeCell() {
+        pendingLabel.setStyle("-fx-text-fill: gray; -fx-font-size: 0.8em;");
+        setContentDisplay(ContentDisplay.RIGHT);
+    }
+
+    @Override
+    protected void updateItem(final TreeModelEntry item, final boolean empty) {
+        super.updateItem(item, empty);
+        if (empty || item == null) {
+            setText(null);
+            setGraphic(null);
+            return;
+        }
+        setText(item.toString());
+        final TreeItem<TreeModelEntry> ti = getTreeItem();
+        final boolean pending = (ti instanceof TreeModelTreeItem) && ((TreeModelTreeItem)ti).getNode().isPending();
+        setGraphic(pending ? pendingLabel : null);
+    }
+}
@@ -0,0 +1,114 @@
+/* ====================================================================
+   Copyright 2017 Andreas Beeker (kiwiwings@apache.org)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package de.kiwiwings.poi.visualizer;
+
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+import javafx.event.Event;
+import javafx.scene.control.TreeItem;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adapts the headless tree model to the JavaFX tree view.
+ * The items of the children are created when they are requested the first time, i.e. when the item is expanded.
+ * Modifications of the model, e.g. nested models which are attached while activating an entry,
+ * are applied on the JavaFX application thread.
+ */
+final class TreeModelTreeItem extends TreeItem<TreeModelEntry> {
+    private final TreeModelNode node;
+    // the created items of the whole tree
+    private final Map<TreeModelNode, TreeModelTreeItem> items;
+    private boolean childrenLoaded;
+
+    private TreeModelTreeItem(final TreeModelNode node, final Map<TreeModelNode, TreeModelTreeItem> items) {
+        super(node.getValue());
+        this.node = node;
+        this.items = items;
+        items.put(node, this);
+    }
+
+    /**
+     * Creates the root item and listens to the modifications of the model
+     *
+     * @param root the root node of the model
+     * @return the root item
+     */
+    static TreeModelTreeItem createRoot(final TreeModelNode root) {
+        final Map<TreeModelNode, TreeModelTreeItem> items = new IdentityHashMap<>();
+        final TreeModelTreeItem rootItem = new TreeModelTreeItem(root, items);
+        root.setChangeListener(node -> Platform.runLater(() -> {
+            // nodes without items are up-to-date, when their items are created
+            final TreeModelTreeItem item = items.get(node);
+            if (item != null) {
+                item.sync();
+            }
+        }));
+        return rootItem;
+    }
+
+    TreeModelNode getNode() {
+        return node;
+    }
+
+    @Override
+    public ObservableList<TreeItem<TreeModelEntry>> getChildren() {
+        final ObservableList<TreeItem<TreeModelEntry>> children = super.getChildren();
+        if (!childrenLoaded) {
+            childrenLoaded = true;
+            children.setAll(getChildItems());
+        }
+        return children;
+    }
+
+    @Override
+    public boolean isLeaf() {
+        // don't trigger the loading of the children only for rendering the expand arrow
+        return childrenLoaded ? super.isLeaf() : node.isLeaf();
+    }
+
+    private void sync() {
+        if (getValue() != node.getValue()) {
+            setValue(node.getValue());
+        } else {
+            // refresh the cell, e.g. for the expand arrow of a former leaf
+            Event.fireEvent(this, new TreeModificationEvent<>(valueChangedEvent(), this, getValue()));
+        }
+
+        if (childrenLoaded) {
+            final List<TreeItem<TreeModelEntry>> newChildren = getChildItems();
+            if (!newChildren.equals(super.getChildren())) {
+                super.getChildren().setAll(newChildren);
+            }
+        }
+    }
+
+    private List<TreeItem<TreeModelEntry>> getChildItems() {
+        final List<TreeModelNode> nodes = node.getChildren();
+        final List<TreeItem<TreeModelEntry>> childItems = new ArrayList<>(nodes.size());
+        for (final TreeModelNode n : nodes) {
+            final TreeModelTreeItem item = items.get(n);
+            childItems.add(item != null ? item : new TreeModelTreeItem(n, items));
+        }
+        return childItems;
+    }
+}
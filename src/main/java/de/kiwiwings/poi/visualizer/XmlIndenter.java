@@ -0,0 +1,293 @@
+/* ====================================================================
+   Copyright 2017 Andreas Beeker (kiwiwings@apache.org)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package de.kiwiwings.poi.visualizer;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.util.IOUtils;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.io.InputStream;
+
+/**
+ * Streaming pretty-printer for xml parts, which doesn't build a DOM.
+ * The indented xml is produced in chunks of a limited size, so huge parts like
+ * a sheet with a few hundred megabytes can be displayed step by step.
+ */
+final class XmlIndenter implements Closeable {
+    /** the approximate number of characters of a chunk */
+    static final int CHUNK_SIZE = Integer.getInteger("poi.visualizer.xml.chunk", 1 << 20);
+
+    private static final String INDENT = "  ";
+    private static final String DEFAULT_DECLARATION = "<?xml version=\"1.0\" encoding=\"utf-8\"?>";
+
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    private final InputStream is;
+    private XMLStreamReader reader;
+    private int depth;
+    // the start tag is kept open, until it's clear, if the element is empty
+    private boolean startTagOpen;
+    private boolean lastWasText;
+    // text events are split by the parser, so whitespace can be only dropped for the whole text
+    private final StringBuilder pendingText = new StringBuilder();
+    // the size of the current chunk - longer texts are written in parts, so they don't need to be kept as a whole
+    private int chunkLimit;
+    private boolean finished;
+    private boolean hasElements;
+
+    XmlIndenter(final InputStream is) {
+        this.is = is;
+        try {
+            reader = FACTORY.createXMLStreamReader(is);
+        } catch (XMLStreamException e) {
+            close();
+        }
+    }
+
+    /**
+     * Indents the whole xml at once
+     *
+     * @param is the xml input
+     * @return the indented xml or an empty string, if the input isn't xml
+     */
+    static String indentAll(final InputStream is) {
+        try (XmlIndenter ind = new XmlIndenter(is)) {
+            final StringBuilder sb = new StringBuilder();
+            while (ind.hasMore()) {
+                sb.append(ind.next(Integer.MAX_VALUE));
+            }
+            return sb.toString();
+        }
+    }
+
+    boolean hasMore() {
+        return !finished;
+    }
+
+    /**
+     * @return the next chunk of the default size
+     */
+    String next() {
+        return next(CHUNK_SIZE);
+    }
+
+    /**
+     * Indents the next events, until the chunk size is reached.
+     * When the xml is malformed, the chunk ends at the error and no further chunks are available.
+     *
+     * @param chunkSize the approximate number of characters, elements are not split
+     * @return the next chunk of indented xml
+     */
+    String next(final int chunkSize) {
+        final StringBuilder sb = new StringBuilder();
+        if (finished) {
+            return "";
+        }
+        chunkLimit = chunkSize;
+        try {
+            if (reader.getEventType() == XMLStreamReader.START_DOCUMENT) {
+                writeDeclaration(sb);
+            }
+            while (sb.length() < chunkSize && reader.hasNext()) {
+                writeEvent(sb, reader.next());
+            }
+            if (!reader.hasNext()) {
+                close();
+            }
+        } catch (XMLStreamException | RuntimeException e) {
+            close();
+            if (!hasElements) {
+                // not xml at all
+                return "";
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void close() {
+        finished = true;
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException ignored) {
+            }
+        }
+        IOUtils.closeQuietly(is);
+    }
+
+    /**
+     * The declaration is taken from the reader, as the standalone flag would be lost otherwise
+     */
+    private void writeDeclaration(final StringBuilder sb) {
+        final String version = reader.getVersion();
+        if (version == null) {
+            sb.append(DEFAULT_DECLARATION);
+        } else {
+            sb.append("<?xml version=\"").append(version).append('"');
+            final String encoding = reader.getCharacterEncodingScheme();
+            if (encoding != null) {
+                sb.append(" encoding=\"").append(encoding).append('"');
+            }
+            if (reader.standaloneSet()) {
+                sb.append(" standalone=\"").append(reader.isStandalone() ? "yes" : "no").append('"');
+            }
+            sb.append("?>");
+        }
+    }
+
+    private void writeEvent(final StringBuilder sb, final int event) {
+        if (event == XMLStreamReader.CHARACTERS || event == XMLStreamReader.SPACE) {
+            pendingText.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            if (sb.length() + pendingText.length() >= chunkLimit) {
+                // e.g. a base64 blob - the text is continued in the next chunk
+                writeText(sb);
+            }
+            return;
+        }
+
+        writeText(sb);
+
+        switch (event) {
+            case XMLStreamReader.START_ELEMENT:
+                closeStartTag(sb);
+                newLine(sb);
+                sb.append('<');
+                appendName(sb, reader.getPrefix(), reader.getLocalName());
+                for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                    final String prefix = reader.getNamespacePrefix(i);
+                    sb.append(" xmlns");
+                    if (prefix != null && !prefix.isEmpty()) {
+                        sb.append(':').append(prefix);
+                    }
+                    sb.append("=\"");
+                    escape(sb, reader.getNamespaceURI(i), true);
+                    sb.append('"');
+                }
+                for (int i = 0; i < reader.getAttributeCount(); i++) {
+                    sb.append(' ');
+                    appendName(sb, reader.getAttributePrefix(i), reader.getAttributeLocalName(i));
+                    sb.append("=\"");
+                    escape(sb, reader.getAttributeValue(i), true);
+                    sb.append('"');
+                }
+                startTagOpen = true;
+                lastWasText = false;
+                hasElements = true;
+                depth++;
+                break;
+            case XMLStreamReader.END_ELEMENT:
+                depth--;
+                if (startTagOpen) {
+                    sb.append("/>");
+                    startTagOpen = false;
+                } else {
+                    if (!lastWasText) {
+                        newLine(sb);
+                    }
+                    sb.append("</");
+                    appendName(sb, reader.getPrefix(), reader.getLocalName());
+                    sb.append('>');
+                }
+                lastWasText = false;
+                break;
+            case XMLStreamReader.CDATA:
+                closeStartTag(sb);
+                sb.append("<![CDATA[").append(reader.getText()).append("]]>");
+                lastWasText = true;
+                break;
+            case XMLStreamReader.COMMENT:
+                closeStartTag(sb);
+                newLine(sb);
+                sb.append("<!--").append(reader.getText()).append("-->");
+                lastWasText = false;
+                break;
+            case XMLStreamReader.PROCESSING_INSTRUCTION:
+                closeStartTag(sb);
+                newLine(sb);
+                sb.append("<?").append(reader.getPITarget());
+                final String data = reader.getPIData();
+                if (data != null && !data.isEmpty()) {
+                    sb.append(' ').append(data);
+                }
+                sb.append("?>");
+                lastWasText = false;
+                break;
+            default:
+                // DTDs and the document end aren't written
+                break;
+        }
+    }
+
+    private void writeText(final StringBuilder sb) {
+        if (pendingText.length() == 0) {
+            return;
+        }
+        if (!StringUtils.isBlank(pendingText)) {
+            closeStartTag(sb);
+            escape(sb, pendingText, false);
+            lastWasText = true;
+        }
+        pendingText.setLength(0);
+    }
+
+    private void closeStartTag(final StringBuilder sb) {
+        if (startTagOpen) {
+            sb.append('>');
+            startTagOpen = false;
+        }
+    }
+
+    private void newLine(final StringBuilder sb) {
+        sb.append('\n');
+        for (int i = 0; i < depth; i++) {
+            sb.append(INDENT);
+        }
+    }
+
+    private static void appendName(final StringBuilder sb, final String prefix, final String localName) {
+        if (prefix != null && !prefix.isEmpty()) {
+            sb.append(prefix).append(':');
+        }
+        sb.append(localName);
+    }
+
+    private static void escape(final StringBuilder sb, final CharSequence text, final boolean attribute) {
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            switch (c) {
+                case '&': sb.append("&amp;"); break;
+                case '<': sb.append("&lt;"); break;
+                case '>': sb.append("&gt;"); break;
+                case '"': sb.append(attribute ? "&quot;" : "\""); break;
+                default: sb.append(c); break;
+            }
+        }
+    }
+
+    private static XMLInputFactory createFactory() {
+        final XMLInputFactory fact = XMLInputFactory.newFactory();
+        // the parts are only displayed, so don't resolve anything outside of the document
+        fact.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        fact.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        fact.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        return fact;
+    }
+}
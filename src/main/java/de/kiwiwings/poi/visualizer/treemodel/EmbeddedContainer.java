@@ -0,0 +1,41 @@
+/* ====================================================================
+   Copyright 2017 Andreas Beeker (kiwiwings@apache.org)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package de.kiwiwings.poi.visualizer.treemodel;
+
+import java.io.IOException;
+
+/**
+ * Entry, which might contain an embedded document. The model of the embedded document is attached to
+ * the node of the entry, when it's loaded - either when the entry is activated or in advance
+ * by the {@link EmbeddedScanner}.
+ */
+public interface EmbeddedContainer {
+    /**
+     * Checks with a small header read, if the entry contains an embedded document
+     *
+     * @return true, if there's an embedded document
+     */
+    boolean hasEmbedded() throws IOException;
+
+    /**
+     * Loads the model of the embedded document, unless it's already loaded
+     *
+     * @return true, if the model was loaded by this call
+     * @throws TreeModelLoadException if the model can't be loaded - the failure is kept and thrown again by later calls
+     */
+    boolean loadEmbedded() throws IOException, TreeModelLoadException;
+}
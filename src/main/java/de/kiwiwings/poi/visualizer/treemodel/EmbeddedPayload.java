@@ -0,0 +1,161 @@
+/* ====================================================================
+   Copyright 2017 Andreas Beeker (kiwiwings@apache.org)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package de.kiwiwings.poi.visualizer.treemodel;
+
+import de.kiwiwings.poi.visualizer.PagedBinaryData;
+import org.exbin.utils.binary_data.BinaryData;
+import org.exbin.utils.binary_data.ByteArrayData;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * The bytes of an embedded document, which are opened by a nested model and shown in the hex view.
+ * Payloads up to a size threshold are kept in memory and the nested models are opened directly from it.
+ * Larger payloads are spooled once to a file of the {@link TempStore} of the document, which is paged by the hex view.
+ */
+public final class EmbeddedPayload {
+	/** Payloads up to this size are kept in memory */
+	static final int MEMORY_THRESHOLD = Integer.getInteger("poi.visualizer.embed.memory", 16 << 20);
+
+	@FunctionalInterface
+	private interface Spooler {
+		File spool(byte[] head, InputStream is, String prefix, String suffix) throws IOException;
+	}
+
+	private final byte[] data;
+	private final int offset;
+	private final File file;
+	private final long size;
+
+	private EmbeddedPayload(final byte[] data, final int offset, final int length) {
+		this.data = data;
+		this.offset = offset;
+		this.file = null;
+		this.size = length;
+	}
+
+	private EmbeddedPayload(final File file) {
+		this.data = null;
+		this.offset = 0;
+		this.file = file;
+		this.size = file.length();
+	}
+
+	/**
+	 * Wraps already decoded bytes - they are kept in memory regardless of the threshold, as they are already there
+	 */
+	public static EmbeddedPayload wrap(final byte[] data) {
+		return wrap(data, 0, data.length);
+	}
+
+	public static EmbeddedPayload wrap(final byte[] data, final int offset, final int length) {
+		return new EmbeddedPayload(data, offset, length);
+	}
+
+	/**
+	 * Reads the payload into memory or spools it to the temp store, if it exceeds the threshold
+	 *
+	 * @param is the stream of the embedded document, which is read until its end
+	 * @param store the temp store of the document
+	 * @param prefix the prefix of the temporary file
+	 * @param suffix the suffix of the temporary file
+	 * @return the payload
+	 */
+	public static EmbeddedPayload read(final InputStream is, final TempStore store, final String prefix, final String suffix) throws IOException {
+		return read(is, store::store, prefix, suffix);
+	}
+
+	/**
+	 * Reads the payload like {@link #read(InputStream, TempStore, String, String)}, but doesn't deduplicate
+	 * spooled payloads - for streams, which are stored only once, e.g. the workbook stream of a document
+	 */
+	public static EmbeddedPayload readUnique(final InputStream is, final TempStore store, final String prefix, final String suffix) throws IOException {
+		return read(is, store::storeUnique, prefix, suffix);
+	}
+
+	private static EmbeddedPayload read(final InputStream is, final Spooler spooler, final String prefix, final String suffix) throws IOException {
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		final byte[] buf = new byte[8192];
+		int len;
+		while (bos.size() <= MEMORY_THRESHOLD && (len = is.read(buf)) != -1) {
+			bos.write(buf, 0, len);
+		}
+		if (bos.size() <= MEMORY_THRESHOLD) {
+			return wrap(bos.toByteArray());
+		}
+
+		return new EmbeddedPayload(spooler.spool(bos.toByteArray(), is, prefix, suffix));
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public boolean isInMemory() {
+		return data != null;
+	}
+
+	/**
+	 * @return the spooled file or {@code null}, if the payload is kept in memory
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return a read-only view of the bytes, if the payload is kept in memory, otherwise {@code null}
+	 */
+	public ByteBuffer getBuffer() {
+		return isInMemory() ? ByteBuffer.wrap(data, offset, (int)size).slice().asReadOnlyBuffer() : null;
+	}
+
+	public InputStream getInputStream() throws IOException {
+		return getInputStream(0);
+	}
+
+	/**
+	 * @param position the offset within the payload, where the stream starts
+	 * @return the stream of the bytes from the position until the end of the payload
+	 */
+	public InputStream getInputStream(final long position) throws IOException {
+		if (isInMemory()) {
+			final int pos = (int)Math.min(position, size);
+			return new ByteArrayInputStream(data, offset + pos, (int)size - pos);
+		}
+		final FileInputStream fis = new FileInputStream(file);
+		// seek instead of skipping, so records at the end of big payloads are read without reading the bytes before
+		fis.getChannel().position(position);
+		return fis;
+	}
+
+	/**
+	 * @return the read-only data for the hex view - whole arrays are shared, slices and files are paged
+	 */
+	public BinaryData getBinaryData() {
+		if (isInMemory() && offset == 0 && size == data.length) {
+			// not editable, as the nested model is opened from the same array
+			return new ByteArrayData(data);
+		}
+		return new PagedBinaryData(this::getInputStream, size);
+	}
+}
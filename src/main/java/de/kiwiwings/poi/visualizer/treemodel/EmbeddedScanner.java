@@ -0,0 +1,128 @@
+/* ====================================================================
+   Copyright 2017 Andreas Beeker (kiwiwings@apache.org)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package de.kiwiwings.poi.visualizer.treemodel;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads the embedded documents of a tree in the background, so expanding them later doesn't block.
+ * The tree is walked for {@link EmbeddedContainer}s, which are detected by their header, and their models
+ * are loaded with a bounded number of threads. The nodes are marked as pending, until their model is loaded.
+ */
+public final class EmbeddedScanner implements Closeable {
+	/** The number of threads, which load the embedded documents */
+	static final int THREADS = Integer.getInteger("poi.visualizer.scan.threads", 2);
+
+	private final ExecutorService pool;
+	private final AtomicInteger pendingCount = new AtomicInteger();
+	private volatile boolean closed;
+
+	public EmbeddedScanner() {
+		final AtomicInteger threadNo = new AtomicInteger();
+		pool = Executors.newFixedThreadPool(THREADS, r -> {
+			final Thread th = new Thread(r, "poi-visualizer-scanner-" + threadNo.incrementAndGet());
+			th.setDaemon(true);
+			th.setPriority(Thread.MIN_PRIORITY);
+			return th;
+		});
+	}
+
+	/**
+	 * Scans the tree of the root node in the background
+	 */
+	public void scan(final TreeModelNode root) {
+		pool.submit(() -> walk(root));
+	}
+
+	/**
+	 * @return the number of embedded documents, which are detected but not yet loaded
+	 */
+	public int getPendingCount() {
+		return pendingCount.get();
+	}
+
+	/**
+	 * Stops the scanning and waits until the currently loading documents are finished,
+	 * so the document can be closed afterwards. The threads aren't interrupted, as an interrupt
+	 * would close the file channels of the document, which they are reading.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		// the queued tasks return immediately, as they check the closed flag
+		pool.shutdown();
+		try {
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void walk(final TreeModelNode node) {
+		if (closed || !node.canContainEmbedded()) {
+			return;
+		}
+		final TreeModelEntry entry = node.getValue();
+		if (entry instanceof EmbeddedContainer) {
+			final EmbeddedContainer container = (EmbeddedContainer)entry;
+			boolean embedded = false;
+			try {
+				embedded = container.hasEmbedded();
+			} catch (IOException|RuntimeException ignored) {
+				// the error is reported, when the entry is activated
+			}
+			if (embedded) {
+				pendingCount.incrementAndGet();
+				node.setPending(true);
+				try {
+					pool.submit(() -> load(node, container));
+				} catch (RejectedExecutionException e) {
+					// the scanner has been closed in the meantime
+					pendingCount.decrementAndGet();
+					node.setPending(false);
+				}
+			}
+		}
+		for (final TreeModelNode child : node.getChildren()) {
+			walk(child);
+		}
+	}
+
+	private void load(final TreeModelNode node, final EmbeddedContainer container) {
+		try {
+			if (!closed) {
+				container.loadEmbedded();
+			}
+		} catch (IOException|TreeModelLoadException|RuntimeException ignored) {
+			// the error is reported, when the entry is activated
+		} finally {
+			pendingCount.decrementAndGet();
+			node.setPending(false);
+		}
+
+		// the embedded document might contain further embedded documents
+		for (final TreeModelNode child : node.getChildren()) {
+			walk(child);
+		}
+	}
+}
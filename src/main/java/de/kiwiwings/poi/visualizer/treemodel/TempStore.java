@@ -0,0 +1,195 @@
+/* ====================================================================
+   Copyright 2017 Andreas Beeker (kiwiwings@apache.org)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package de.kiwiwings.poi.visualizer.treemodel;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Temporary files of an open document, e.g. the spooled payloads of large embedded documents.
+ * Identical payloads are stored only once by their SHA-256 hash and the total size is limited by a quota,
+ * which is only charged for new data.
+ * The files are deleted, when the document is closed, so long sessions don't accumulate temporary files
+ * and {@link File#deleteOnExit()} entries.
+ */
+public final class TempStore implements Closeable {
+	/** The maximum total size of the files of a document */
+	static final long QUOTA = Long.getLong("poi.visualizer.temp.quota", 1L << 30);
+
+	private File dir;
+	// the deduplicated files by their hash
+	private final Map<String, File> hashes = new HashMap<>();
+	private final List<File> files = new ArrayList<>();
+	private long usedSize;
+	private boolean closed;
+
+	/**
+	 * The store is created by the root node of the document, when the first temporary file is stored
+	 */
+	TempStore() {
+	}
+
+	/**
+	 * Stores the data of the stream - if the same data was already stored, its file is returned instead
+	 *
+	 * @param head the already read start of the data
+	 * @param is the stream of the remaining data, which is read until its end
+	 * @param prefix the prefix of the file name
+	 * @param suffix the suffix of the file name
+	 * @return the file with the data
+	 * @throws IOException if the data can't be written or exceeds the quota
+	 */
+	public synchronized File store(final byte[] head, final InputStream is, final String prefix, final String suffix) throws IOException {
+		final MessageDigest md = newDigest();
+		// a duplicate isn't bigger than the already stored files, so only new data can exceed the quota
+		final File file = write(head, is, prefix, suffix, md, 0);
+		final long size = file.length();
+
+		final String hash = toHex(md.digest());
+		final File existing = hashes.get(hash);
+		if (existing != null) {
+			delete(file);
+			return existing;
+		}
+		try {
+			checkQuota(size);
+		} catch (IOException e) {
+			delete(file);
+			throw e;
+		}
+		hashes.put(hash, file);
+		files.add(file);
+		usedSize += size;
+		return file;
+	}
+
+	/**
+	 * Stores the data of the stream without looking for duplicates, e.g. for the streams of the document itself,
+	 * which can't be stored twice - this saves hashing big streams
+	 *
+	 * @param head the already read start of the data
+	 * @param is the stream of the remaining data, which is read until its end
+	 * @param prefix the prefix of the file name
+	 * @param suffix the suffix of the file name
+	 * @return the file with the data
+	 * @throws IOException if the data can't be written or exceeds the quota
+	 */
+	public synchronized File storeUnique(final byte[] head, final InputStream is, final String prefix, final String suffix) throws IOException {
+		final File file = write(head, is, prefix, suffix, null, usedSize);
+		files.add(file);
+		usedSize += file.length();
+		return file;
+	}
+
+	private File write(final byte[] head, final InputStream is, final String prefix, final String suffix,
+		final MessageDigest md, final long quotaUsed) throws IOException {
+		if (closed) {
+			throw new IOException("temp store is closed");
+		}
+		if (dir == null) {
+			// POI's temp directory is registered for deletion on exit, so a plain one is used
+			dir = Files.createTempDirectory("poi-visualizer-").toFile();
+		}
+
+		final File file = Files.createTempFile(dir.toPath(), prefix, suffix).toFile();
+		final OutputStream fos = new FileOutputStream(file);
+		long size = head.length;
+		try (OutputStream os = (md == null) ? fos : new DigestOutputStream(fos, md)) {
+			os.write(head);
+			checkQuota(quotaUsed, size);
+			final byte[] buf = new byte[8192];
+			int len;
+			while ((len = is.read(buf)) != -1) {
+				os.write(buf, 0, len);
+				size += len;
+				checkQuota(quotaUsed, size);
+			}
+		} catch (IOException|RuntimeException e) {
+			delete(file);
+			throw e;
+		}
+		return file;
+	}
+
+	public synchronized long getUsedSize() {
+		return usedSize;
+	}
+
+	public synchronized int getFileCount() {
+		return files.size();
+	}
+
+	/**
+	 * Deletes the files - files, which are still opened and can't be deleted, are deleted on exit
+	 */
+	@Override
+	public synchronized void close() {
+		closed = true;
+		files.forEach(TempStore::delete);
+		files.clear();
+		hashes.clear();
+		usedSize = 0;
+		if (dir != null) {
+			delete(dir);
+			dir = null;
+		}
+	}
+
+	private void checkQuota(final long size) throws IOException {
+		checkQuota(usedSize, size);
+	}
+
+	private static void checkQuota(final long used, final long size) throws IOException {
+		if (used + size > QUOTA) {
+			throw new IOException("temp store quota of " + QUOTA + " bytes exceeded");
+		}
+	}
+
+	private static void delete(final File file) {
+		if (!file.delete() && file.exists()) {
+			file.deleteOnExit();
+		}
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(final byte[] digest) {
+		final StringBuilder sb = new StringBuilder(digest.length * 2);
+		for (final byte b : digest) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+}
@@ -32,6 +32,13 @@ public interface TreeModelEntry extends Closeable {
      */
     void activate(DocumentFragment fragment);
 
+    /**
+     * Discard cached values like the label, e.g. after the underlying record has been modified.
+     * The caller needs to refresh the tree cell.
+     */
+    default void invalidate() {
+    }
+
 //    /**
 //     * Store the document entries into the entry
 //     * @param fragment the document containing the new data
@@ -16,10 +16,17 @@
 
 package de.kiwiwings.poi.visualizer.treemodel;
 
-import javafx.scene.control.TreeItem;
+import org.apache.poi.poifs.filesystem.FileMagic;
 
 import java.io.File;
+import java.util.Set;
 
 public interface TreeModelFileSource {
-    void load(TreeItem<TreeModelEntry> parent, File source) throws TreeModelLoadException;
+    /**
+     * @return the file types, which are handled by this source -
+     *   the file is only passed to {@link #load}, if its magic is contained
+     */
+    Set<FileMagic> getFileMagics();
+
+    void load(TreeModelNode parent, File source, TreeModelLoadContext context) throws TreeModelLoadException;
 }
@@ -0,0 +1,119 @@
+/* ====================================================================
+   Copyright 2017 Andreas Beeker (kiwiwings@apache.org)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package de.kiwiwings.poi.visualizer.treemodel;
+
+import org.apache.poi.poifs.filesystem.DirectoryNode;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * State of a single load operation, which is handed through the file and directory node sources.
+ * The sources report their progress in units of work (parts, entries, records) and
+ * stop processing, when the load has been cancelled.
+ * Furthermore the sources share the parsed POI objects via the context, so a stream is only
+ * decoded once, regardless of the order in which the sources are called.
+ */
+public class TreeModelLoadContext {
+
+	@FunctionalInterface
+	public interface ProgressListener {
+		void onProgress(long workDone, long totalWork);
+	}
+
+	@FunctionalInterface
+	public interface Parser<T> {
+		T parse() throws Exception;
+	}
+
+	private final ProgressListener listener;
+	private final BooleanSupplier cancelled;
+	private long workDone;
+	private long totalWork;
+	private final Map<DirectoryNode,Map<String,Object>> parsed = new IdentityHashMap<>();
+
+	/**
+	 * Creates a context without progress reporting, which can't be cancelled -
+	 * used for loading nested documents on activation
+	 */
+	public TreeModelLoadContext() {
+		this((done, total) -> {}, () -> false);
+	}
+
+	public TreeModelLoadContext(final ProgressListener listener, final BooleanSupplier cancelled) {
+		this.listener = listener;
+		this.cancelled = cancelled;
+	}
+
+	/**
+	 * Announce further units of work, e.g. the number of records of a container
+	 * @param units the number of additional units
+	 */
+	public void addWork(final long units) {
+		totalWork += units;
+		listener.onProgress(workDone, totalWork);
+	}
+
+	/**
+	 * Mark units of work as processed
+	 * @param units the number of processed units
+	 */
+	public void worked(final long units) {
+		workDone += units;
+		listener.onProgress(workDone, Math.max(workDone, totalWork));
+	}
+
+	public boolean isCancelled() {
+		return cancelled.getAsBoolean();
+	}
+
+	public void checkCancelled() throws TreeModelLoadException {
+		if (isCancelled()) {
+			throw new TreeModelLoadException("Loading has been cancelled");
+		}
+	}
+
+	/**
+	 * Returns the POI object of a stream, which is parsed on the first request
+	 *
+	 * @param dir the directory containing the stream
+	 * @param streamName the name of the stream, e.g. "PowerPoint Document"
+	 * @param type the type of the POI object
+	 * @param parser creates the POI object, if it hasn't been parsed before
+	 * @return the (cached) POI object
+	 * @throws TreeModelLoadException if the stream can't be parsed or was parsed into another type
+	 */
+	public <T> T getParsed(final DirectoryNode dir, final String streamName, final Class<T> type, final Parser<T> parser)
+	throws TreeModelLoadException {
+		final Map<String,Object> dirCache = parsed.computeIfAbsent(dir, k -> new HashMap<>());
+		Object obj = dirCache.get(streamName);
+		if (obj == null) {
+			try {
+				obj = parser.parse();
+			} catch (Exception e) {
+				throw new TreeModelLoadException("Can't parse stream '"+streamName+"'", e);
+			}
+			dirCache.put(streamName, obj);
+		}
+		if (!type.isInstance(obj)) {
+			throw new TreeModelLoadException("Stream '"+streamName+"' was parsed as "+obj.getClass().getSimpleName());
+		}
+		return type.cast(obj);
+	}
+}
@@ -0,0 +1,239 @@
+/* ====================================================================
+   Copyright 2017 Andreas Beeker (kiwiwings@apache.org)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package de.kiwiwings.poi.visualizer.treemodel;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Node of the entry tree, which doesn't depend on a UI toolkit, so the models can be
+ * loaded headless, e.g. by batch tools. A view, like the JavaFX tree view, adapts the nodes
+ * and registers a change listener at the root node.
+ * <p>
+ * The nodes are modified by the loading, activating and scanning threads, therefore the children are guarded
+ * by the node, the value and the parent are volatile and the change listener is called on the modifying thread.
+ */
+public class TreeModelNode {
+	private volatile TreeModelEntry value;
+	private volatile TreeModelNode parent;
+	// null until the first child is added, as most nodes are leafs
+	private List<TreeModelNode> children;
+	private boolean childrenLoaded;
+	// the embedded document of the entry is being loaded in the background
+	private volatile boolean pending;
+	// only set on the root node
+	private Consumer<TreeModelNode> changeListener;
+	// only set on the root node, when the first temporary file of the document is stored
+	private TempStore tempStore;
+	// only set on the root node, so loaders which are still running don't create a new temp store
+	private boolean closed;
+
+	public TreeModelNode() {
+	}
+
+	public TreeModelNode(final TreeModelEntry value) {
+		this.value = value;
+	}
+
+	public TreeModelEntry getValue() {
+		return value;
+	}
+
+	public void setValue(final TreeModelEntry value) {
+		this.value = value;
+		fireChanged();
+	}
+
+	public TreeModelNode getParent() {
+		return parent;
+	}
+
+	/**
+	 * @return a snapshot of the children - the children are loaded on the first access
+	 */
+	public List<TreeModelNode> getChildren() {
+		synchronized (this) {
+			ensureChildrenLoaded();
+			return (children == null) ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(children));
+		}
+	}
+
+	public void addChild(final TreeModelNode child) {
+		synchronized (this) {
+			if (children == null) {
+				children = new ArrayList<>(4);
+			}
+			children.add(child);
+			child.parent = this;
+		}
+		fireChanged();
+	}
+
+	public boolean isPending() {
+		return pending;
+	}
+
+	/**
+	 * Marks the node as pending, while its embedded document is loaded in the background
+	 */
+	public void setPending(final boolean pending) {
+		if (this.pending != pending) {
+			this.pending = pending;
+			fireChanged();
+		}
+	}
+
+	/**
+	 * @return true, if the node has no children - this doesn't trigger the loading of the children
+	 */
+	public synchronized boolean isLeaf() {
+		return childrenLoaded ? (children == null || children.isEmpty()) : isLeafUnloaded();
+	}
+
+	/**
+	 * Sets the listener, which is notified about modified nodes of the whole tree
+	 *
+	 * @param changeListener the listener or {@code null} to remove it
+	 */
+	public void setChangeListener(final Consumer<TreeModelNode> changeListener) {
+		this.changeListener = changeListener;
+	}
+
+	/**
+	 * @return the temp store of the document of this node, i.e. of the root node of the tree
+	 * @throws IOException if the document is already closed
+	 */
+	public TempStore getTempStore() throws IOException {
+		final TreeModelNode root = getRoot();
+		synchronized (root) {
+			if (root.closed) {
+				throw new IOException("document is closed");
+			}
+			if (root.tempStore == null) {
+				root.tempStore = new TempStore();
+			}
+			return root.tempStore;
+		}
+	}
+
+	/**
+	 * Closes the document of this root node - the entries of the loaded nodes are closed and then
+	 * the temporary files are deleted. The root entries of nested documents hold the handles of their
+	 * payloads, so they are closed before the files are deleted.
+	 */
+	public void closeDocument() throws IOException {
+		final TempStore store;
+		synchronized (this) {
+			closed = true;
+			store = tempStore;
+			tempStore = null;
+		}
+		try {
+			closeEntries();
+		} finally {
+			if (store != null) {
+				store.close();
+			}
+		}
+	}
+
+	private void closeEntries() throws IOException {
+		// collect the loaded nodes without loading lazy children - the tree might be too deep for recursion
+		final List<TreeModelNode> nodes = new ArrayList<>();
+		final Deque<TreeModelNode> stack = new ArrayDeque<>();
+		stack.push(this);
+		while (!stack.isEmpty()) {
+			final TreeModelNode node = stack.pop();
+			nodes.add(node);
+			synchronized (node) {
+				if (node.children != null) {
+					node.children.forEach(stack::push);
+				}
+			}
+		}
+
+		// the nested documents are closed before the documents containing them
+		IOException failure = null;
+		for (int i = nodes.size() - 1; i >= 0; i--) {
+			final TreeModelEntry entry = nodes.get(i).value;
+			if (entry == null) {
+				continue;
+			}
+			try {
+				entry.close();
+			} catch (IOException|RuntimeException e) {
+				final IOException ex = (e instanceof IOException) ? (IOException)e : new IOException(e);
+				if (failure == null) {
+					failure = ex;
+				} else {
+					failure.addSuppressed(ex);
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Hook for nodes, which create their children only when they are requested the first time
+	 */
+	protected void loadChildren() {
+	}
+
+	/**
+	 * Hook for lazy nodes, whose subtree can't contain embedded documents - the {@link EmbeddedScanner}
+	 * doesn't load the children of those nodes
+	 */
+	protected boolean canContainEmbedded() {
+		return true;
+	}
+
+	/**
+	 * Hook for lazy nodes to tell, if there will be children without loading them
+	 */
+	protected boolean isLeafUnloaded() {
+		return children == null || children.isEmpty();
+	}
+
+	private void ensureChildrenLoaded() {
+		if (!childrenLoaded) {
+			childrenLoaded = true;
+			loadChildren();
+		}
+	}
+
+	private TreeModelNode getRoot() {
+		TreeModelNode root = this;
+		while (root.parent != null) {
+			root = root.parent;
+		}
+		return root;
+	}
+
+	private void fireChanged() {
+		final Consumer<TreeModelNode> listener = getRoot().changeListener;
+		if (listener != null) {
+			listener.accept(this);
+		}
+	}
+}
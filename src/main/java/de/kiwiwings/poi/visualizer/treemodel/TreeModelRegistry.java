@@ -0,0 +1,104 @@
+/* ====================================================================
+   Copyright 2017 Andreas Beeker (kiwiwings@apache.org)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package de.kiwiwings.poi.visualizer.treemodel;
+
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.util.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.ServiceLoader.Provider;
+import java.util.stream.Collectors;
+
+/**
+ * Registry of the tree model sources, which are looked up only once via the ServiceLoader.
+ * The sources keep the state of a load, therefore a new instance is provided for each load.
+ */
+public final class TreeModelRegistry {
+
+	private static final Map<FileMagic,List<Provider<TreeModelFileSource>>> FILE_SOURCES = new EnumMap<>(FileMagic.class);
+	private static final List<Provider<TreeModelDirNodeSource>> DIR_NODE_SOURCES;
+
+	static {
+		ServiceLoader.load(TreeModelFileSource.class).stream().forEach(p -> {
+			for (final FileMagic fm : p.get().getFileMagics()) {
+				FILE_SOURCES.computeIfAbsent(fm, k -> new ArrayList<>()).add(p);
+			}
+		});
+		DIR_NODE_SOURCES = ServiceLoader.load(TreeModelDirNodeSource.class).stream().collect(Collectors.toList());
+	}
+
+	private TreeModelRegistry() {
+	}
+
+	/**
+	 * @param fm the file magic
+	 * @return new instances of the file sources, which handle the given file magic
+	 */
+	public static List<TreeModelFileSource> getFileSources(final FileMagic fm) {
+		return FILE_SOURCES.getOrDefault(fm, Collections.emptyList()).stream().map(Provider::get).collect(Collectors.toList());
+	}
+
+	/**
+	 * @return new instances of all directory node sources
+	 */
+	public static List<TreeModelDirNodeSource> getDirNodeSources() {
+		return DIR_NODE_SOURCES.stream().map(Provider::get).collect(Collectors.toList());
+	}
+
+	/**
+	 * Detects the file type once and loads the file with the matching file source
+	 *
+	 * @param source the file to be loaded
+	 * @param context the context of the load
+	 * @return the root item of the loaded file
+	 * @throws TreeModelLoadException if the file type isn't supported or the file can't be loaded
+	 */
+	public static TreeModelNode load(final File source, final TreeModelLoadContext context) throws TreeModelLoadException {
+		final FileMagic fm;
+		try {
+			fm = FileMagic.valueOf(source);
+		} catch (IOException e) {
+			throw new TreeModelLoadException("Error in opening '" + source.getPath() + "'", e);
+		}
+
+		TreeModelLoadException lastEx = null;
+		for (final TreeModelFileSource src : getFileSources(fm)) {
+			final TreeModelNode treeNode = new TreeModelNode();
+			try {
+				src.load(treeNode, source, context);
+				return treeNode;
+			} catch (TreeModelLoadException ex) {
+				// the partially loaded document might have spooled temporary files
+				IOUtils.closeQuietly(treeNode::closeDocument);
+				context.checkCancelled();
+				lastEx = ex;
+			} catch (RuntimeException ex) {
+				IOUtils.closeQuietly(treeNode::closeDocument);
+				throw ex;
+			}
+		}
+
+		throw (lastEx != null) ? lastEx : new TreeModelLoadException("File with file magic '"+fm+"' is not an Office file.");
+	}
+}
@@ -16,21 +16,27 @@
 
 package de.kiwiwings.poi.visualizer.treemodel;
 
-import javafx.scene.control.TreeItem;
 import org.apache.poi.common.usermodel.GenericRecord;
 import org.apache.poi.ddf.EscherComplexProperty;
 import org.apache.poi.ddf.EscherPropertyTypes;
-import org.apache.poi.util.GenericRecordJsonWriter;
+import org.apache.poi.util.GenericRecordUtil.AnnotatedFlag;
 import org.apache.poi.util.StringUtil;
 
 import javax.json.Json;
 import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
-import java.lang.reflect.InvocationTargetException;
+import javax.json.JsonValue;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -40,16 +46,56 @@ public class TreeModelUtils {
 	// replace control characters
 	private static final Pattern CTRL_CHR = Pattern.compile("\\p{Cc}");
 	private static final Pattern getter = Pattern.compile("(?:is|get)(.*)");
+	private static final int MAX_GENERIC_DEPTH = 20;
+	private static final int MAX_HEX_BYTES = 1024;
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
 
-	public static TreeItem<TreeModelEntry> getNamedTreeNode(final TreeItem<TreeModelEntry> parent, final List<String> names) {
+	/**
+	 * The accessors of the reflected properties are only looked up once per class,
+	 * as the same few record types are activated over and over
+	 */
+	private static final ClassValue<List<PropertyAccessor>> PROPERTY_ACCESSORS = new ClassValue<List<PropertyAccessor>>() {
+		@Override
+		protected List<PropertyAccessor> computeValue(Class<?> type) {
+			final List<PropertyAccessor> list = new ArrayList<>();
+			for (Method m : getGetter(new ArrayList<>(), type)) {
+				if (!useReturnType(m)) {
+					continue;
+				}
+				final Matcher match = getter.matcher(m.getName());
+				match.matches();
+				try {
+					list.add(new PropertyAccessor(match.group(1), toHandle(m)));
+				} catch (IllegalAccessException e) {
+					// the getter isn't accessible from this module - skip it
+				}
+			}
+			return Collections.unmodifiableList(list);
+		}
+	};
+
+	private static final class PropertyAccessor {
+		private final String name;
+		private final MethodHandle handle;
+
+		PropertyAccessor(final String name, final MethodHandle handle) {
+			this.name = name;
+			this.handle = handle;
+		}
+	}
+
+	private TreeModelUtils() {
+	}
+
+	public static TreeModelNode getNamedTreeNode(final TreeModelNode parent, final List<String> names) {
 		return getNamedTreeNode(parent, names.stream());
 	}
 
-	public static TreeItem<TreeModelEntry> getNamedTreeNode(final TreeItem<TreeModelEntry> parent, final String... names) {
+	public static TreeModelNode getNamedTreeNode(final TreeModelNode parent, final String... names) {
 		return getNamedTreeNode(parent, Stream.of(names));
 	}
 
-	private static TreeItem<TreeModelEntry> getNamedTreeNode(final TreeItem<TreeModelEntry> parent, final Stream<String> names) {
+	private static TreeModelNode getNamedTreeNode(final TreeModelNode parent, final Stream<String> names) {
 		final List<String> escNames = names.map(TreeModelUtils::escapeString).collect(Collectors.toList());
 		return parent.getChildren().stream().filter(c -> escNames.stream().anyMatch(n -> c.getValue().toString().contains(n))).findFirst().orElse(null);
 	}
@@ -70,66 +116,143 @@ public class TreeModelUtils {
 		return sb.toString();
 	}
 
-	public static String reflectProperties(Object obj) {
+	public static JsonObject reflectProperties(Object obj) {
 		if (obj instanceof GenericRecord) {
-			return GenericRecordJsonWriter.marshal((GenericRecord)obj, true);
+			return genericProperties((GenericRecord)obj, 0);
 		}
 
 
 		final JsonObjectBuilder jsonBuilder = Json.createObjectBuilder();
 
-		for (Method m : getGetter(new ArrayList<>(), obj.getClass())) {
-			if (useReturnType(m)) {
-				Matcher match = getter.matcher(m.getName());
-				match.matches();
-				final String propName = match.group(1);
-				Object retVal;
-				try {
-					m.setAccessible(true);
-					retVal = m.invoke(obj);
-				} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-					retVal = e.getMessage();
-				}
+		for (PropertyAccessor pa : PROPERTY_ACCESSORS.get(obj.getClass())) {
+			final String propName = pa.name;
+			Object retVal;
+			try {
+				retVal = (Object)pa.handle.invokeExact(obj);
+			} catch (Throwable e) {
+				retVal = e.getMessage();
+			}
 
-				if (retVal == null) {
-					jsonBuilder.addNull(propName);
-				} else if (retVal instanceof Collection<?>) {
-					final JsonArrayBuilder arrBuilder = Json.createArrayBuilder();
-					for (Object o : ((Collection<?>)retVal)) {
-						if (o == null) {
-							arrBuilder.addNull();
-						} else if (o instanceof EscherComplexProperty) {
-							final EscherComplexProperty ep = (EscherComplexProperty)o;
-							String val = ep.toString();
-							if (ep.getPropertyNumber() == EscherPropertyTypes.GROUPSHAPE__SHAPENAME.getPropertyId()) {
-								final byte[] cd = ep.getComplexData();
-								final String name = StringUtil.getFromUnicodeLE0Terminated(cd, 0, cd.length / 2);
-								val = val.replaceFirst(", data: ", ", name: '" + name + "', data: ");
-							}
-							arrBuilder.add(val);
-						} else {
-							arrBuilder.add(o.toString());
+			if (retVal == null) {
+				jsonBuilder.addNull(propName);
+			} else if (retVal instanceof Collection<?>) {
+				final JsonArrayBuilder arrBuilder = Json.createArrayBuilder();
+				for (Object o : ((Collection<?>)retVal)) {
+					if (o == null) {
+						arrBuilder.addNull();
+					} else if (o instanceof EscherComplexProperty) {
+						final EscherComplexProperty ep = (EscherComplexProperty)o;
+						String val = ep.toString();
+						if (ep.getPropertyNumber() == EscherPropertyTypes.GROUPSHAPE__SHAPENAME.getPropertyId()) {
+							final byte[] cd = ep.getComplexData();
+							final String name = StringUtil.getFromUnicodeLE0Terminated(cd, 0, cd.length / 2);
+							val = val.replaceFirst(", data: ", ", name: '" + name + "', data: ");
 						}
+						arrBuilder.add(val);
+					} else {
+						arrBuilder.add(o.toString());
 					}
-					jsonBuilder.add(propName, arrBuilder.build());
-				} else if (retVal instanceof Double) {
-					jsonBuilder.add(propName, ((Double)retVal).doubleValue());
-				} else if (retVal instanceof Boolean) {
-					jsonBuilder.add(propName, ((Boolean)retVal).booleanValue());
-				} else if (retVal instanceof Integer || retVal instanceof Short || retVal instanceof Byte) {
-					jsonBuilder.add(propName, ((Number)retVal).intValue());
-				} else if (retVal instanceof Long) {
-					jsonBuilder.add(propName, ((Long)retVal).longValue());
-				} else if (retVal instanceof BigDecimal) {
-					jsonBuilder.add(propName, (BigDecimal)retVal);
-				} else if (retVal instanceof BigInteger) {
-					jsonBuilder.add(propName, (BigInteger)retVal);
-				} else {
-					jsonBuilder.add(propName, retVal.toString());
+				}
+				jsonBuilder.add(propName, arrBuilder.build());
+			} else if (retVal instanceof Double) {
+				jsonBuilder.add(propName, ((Double)retVal).doubleValue());
+			} else if (retVal instanceof Boolean) {
+				jsonBuilder.add(propName, ((Boolean)retVal).booleanValue());
+			} else if (retVal instanceof Integer || retVal instanceof Short || retVal instanceof Byte) {
+				jsonBuilder.add(propName, ((Number)retVal).intValue());
+			} else if (retVal instanceof Long) {
+				jsonBuilder.add(propName, ((Long)retVal).longValue());
+			} else if (retVal instanceof BigDecimal) {
+				jsonBuilder.add(propName, (BigDecimal)retVal);
+			} else if (retVal instanceof BigInteger) {
+				jsonBuilder.add(propName, (BigInteger)retVal);
+			} else {
+				jsonBuilder.add(propName, retVal.toString());
+			}
+		}
+		return jsonBuilder.build();
+	}
+
+	/**
+	 * Converts the generic properties of a record - the child records aren't included,
+	 * as they are shown as tree nodes.
+	 * POIs GenericRecordJsonWriter isn't used, because its output isn't always valid json.
+	 */
+	private static JsonObject genericProperties(final GenericRecord record, final int depth) {
+		final JsonObjectBuilder jsonBuilder = Json.createObjectBuilder();
+		final Map<String, Supplier<?>> props = record.getGenericProperties();
+		if (props != null) {
+			props.forEach((name, supplier) -> {
+				Object value;
+				try {
+					value = (supplier == null) ? null : supplier.get();
+				} catch (RuntimeException e) {
+					value = e.getMessage();
+				}
+				jsonBuilder.add(name, toJsonValue(value, depth));
+			});
+		}
+		return jsonBuilder.build();
+	}
+
+	private static JsonValue toJsonValue(final Object value, final int depth) {
+		if (value == null) {
+			return JsonValue.NULL;
+		} else if (value instanceof Boolean) {
+			return ((Boolean)value) ? JsonValue.TRUE : JsonValue.FALSE;
+		} else if (value instanceof Byte || value instanceof Short || value instanceof Integer || value instanceof Long) {
+			return Json.createValue(((Number)value).longValue());
+		} else if (value instanceof Float || value instanceof Double) {
+			final double d = ((Number)value).doubleValue();
+			return Double.isFinite(d) ? Json.createValue(d) : Json.createValue(Double.toString(d));
+		} else if (value instanceof BigInteger) {
+			return Json.createValue((BigInteger)value);
+		} else if (value instanceof BigDecimal) {
+			return Json.createValue((BigDecimal)value);
+		} else if (value instanceof AnnotatedFlag) {
+			final AnnotatedFlag af = (AnnotatedFlag)value;
+			return Json.createObjectBuilder()
+				.add("value", toJsonValue(af.getValue().get(), depth))
+				.add("flags", af.getDescription())
+				.build();
+		} else if (value instanceof Supplier) {
+			return toJsonValue(((Supplier<?>)value).get(), depth);
+		} else if (value instanceof GenericRecord && depth < MAX_GENERIC_DEPTH) {
+			return genericProperties((GenericRecord)value, depth + 1);
+		} else if (value instanceof byte[]) {
+			return Json.createValue(toHex((byte[])value));
+		} else if (value instanceof Map && depth < MAX_GENERIC_DEPTH) {
+			final JsonObjectBuilder ob = Json.createObjectBuilder();
+			((Map<?,?>)value).forEach((k,v) -> ob.add(String.valueOf(k), toJsonValue(v, depth + 1)));
+			return ob.build();
+		} else if ((value instanceof Iterable || value.getClass().isArray()) && depth < MAX_GENERIC_DEPTH) {
+			final JsonArrayBuilder ab = Json.createArrayBuilder();
+			if (value instanceof Iterable) {
+				((Iterable<?>)value).forEach(o -> ab.add(toJsonValue(o, depth + 1)));
+			} else {
+				final int len = Array.getLength(value);
+				for (int i = 0; i < len; i++) {
+					ab.add(toJsonValue(Array.get(value, i), depth + 1));
 				}
 			}
+			return ab.build();
+		} else if (value instanceof Enum) {
+			return Json.createValue(((Enum<?>)value).name());
+		} else {
+			return Json.createValue(value.toString());
 		}
-		return jsonBuilder.build().toString();
+	}
+
+	private static String toHex(final byte[] data) {
+		final int len = Math.min(data.length, MAX_HEX_BYTES);
+		final StringBuilder sb = new StringBuilder(len * 2 + 3);
+		for (int i = 0; i < len; i++) {
+			sb.append(Character.forDigit((data[i] >> 4) & 0xF, 16)).append(Character.forDigit(data[i] & 0xF, 16));
+		}
+		if (len < data.length) {
+			sb.append("...");
+		}
+		return sb.toString();
 	}
 
 	private static boolean useReturnType(Method m) {
@@ -154,11 +277,21 @@ public class TreeModelUtils {
 
 		for (Method m : clazz.getDeclaredMethods()) {
 			final Matcher match = getter.matcher(m.getName());
-			if (match.matches() && m.getParameterCount() == 0) {
-				m.setAccessible(true);
+			if (match.matches() && m.getParameterCount() == 0 && m.trySetAccessible()) {
 				list.add(m);
 			}
 		}
 		return list;
 	}
+
+	/**
+	 * @return a handle of the getter with the uniform type {@code (Object)Object}
+	 */
+	private static MethodHandle toHandle(final Method m) throws IllegalAccessException {
+		MethodHandle mh = MethodHandles.lookup().unreflect(m);
+		if (Modifier.isStatic(m.getModifiers())) {
+			mh = MethodHandles.dropArguments(mh, 0, Object.class);
+		}
+		return mh.asType(GETTER_TYPE);
+	}
 }
@@ -37,7 +37,7 @@ public class GenericNamedEntry implements TreeModelEntry {
     public void activate(DocumentFragment fragment) {
         fragment.setBinarySource(ByteArrayEditableData::new);
         fragment.setSourceType(SourceType.empty);
-        fragment.setProperties("");
+        fragment.setProperties(null);
         handler.accept(fragment);
     }
 
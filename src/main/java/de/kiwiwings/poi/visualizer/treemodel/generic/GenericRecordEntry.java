@@ -19,20 +19,20 @@ package de.kiwiwings.poi.visualizer.treemodel.generic;
 import de.kiwiwings.poi.visualizer.DocumentFragment;
 import de.kiwiwings.poi.visualizer.DocumentFragment.SourceType;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
-import javafx.scene.control.TreeItem;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import org.apache.poi.common.usermodel.GenericRecord;
-import org.apache.poi.util.GenericRecordJsonWriter;
 import org.exbin.utils.binary_data.ByteArrayEditableData;
 
 import java.io.IOException;
 
+import static de.kiwiwings.poi.visualizer.treemodel.TreeModelUtils.reflectProperties;
+
 public class GenericRecordEntry implements TreeModelEntry {
     private final GenericRecord record;
-    private final TreeItem<TreeModelEntry> treeNode;
+    private final TreeModelNode treeNode;
     private String name = null;
-    private boolean wasActivated = false;
 
-    public GenericRecordEntry(final GenericRecord record, final TreeItem<TreeModelEntry> treeNode) {
+    public GenericRecordEntry(final GenericRecord record, final TreeModelNode treeNode) {
         this.record = record;
         this.treeNode = treeNode;
     }
@@ -56,15 +56,7 @@ public class GenericRecordEntry implements TreeModelEntry {
 
     @Override
     public void activate(DocumentFragment fragment) {
-        final StringBuilder sb = new StringBuilder();
-        try (MyGenericWriter w = new MyGenericWriter(sb)) {
-            w.setWithComments(false);
-            w.write(record);
-            fragment.setProperties(sb.toString());
-        } catch (IOException e) {
-            fragment.setProperties("{}");
-        }
-        wasActivated = true;
+        fragment.setProperties(reflectProperties(record));
         fragment.setBinarySource(ByteArrayEditableData::new);
         fragment.setSourceType(SourceType.text_plain);
         fragment.setFileName(toString()+".json");
@@ -74,49 +66,4 @@ public class GenericRecordEntry implements TreeModelEntry {
     public void close() throws IOException {
 
     }
-
-    private class MyGenericWriter extends GenericRecordJsonWriter {
-        MyGenericWriter(Appendable buffer) {
-            super(buffer);
-        }
-
-        @Override
-        protected boolean writeChildren(GenericRecord record, boolean hasProperties) {
-            printGenericRecord(null, record);
-            return false;
-        }
-
-        @Override
-        protected boolean printGenericRecord(String name, Object o) {
-            if (!wasActivated) {
-                GenericRecord newParent = (GenericRecord) o;
-                if (name != null) {
-                    final TreeItem<TreeModelEntry> childNode = new TreeItem<>();
-                    GenericRecordEntry ge = new GenericRecordEntry(newParent, childNode);
-                    ge.setName(name);
-                    childNode.setValue(ge);
-                    treeNode.getChildren().add(childNode);
-                    GenericTreeModel.loadRecords(childNode, newParent);
-                } else {
-                    GenericTreeModel.loadRecords(treeNode, newParent);
-                }
-            }
-            return false;
-        }
-
-        @Override
-        protected boolean printBytes(String name, Object o) {
-            if (!wasActivated) {
-                final TreeItem<TreeModelEntry> childNode = new TreeItem<>();
-                GenericNamedEntry gne = new GenericNamedEntry(name, (docFrag) -> {
-                    docFrag.setBinarySource(() -> new ByteArrayEditableData((byte[]) o));
-                    docFrag.setSourceType(SourceType.octet);
-                });
-                childNode.setValue(gne);
-                treeNode.getChildren().add(childNode);
-            }
-            return false;
-        }
-    }
-
 }
@@ -0,0 +1,98 @@
+/* ====================================================================
+   Copyright 2017 Andreas Beeker (kiwiwings@apache.org)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package de.kiwiwings.poi.visualizer.treemodel.generic;
+
+import de.kiwiwings.poi.visualizer.DocumentFragment.SourceType;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
+import org.apache.poi.common.usermodel.GenericRecord;
+import org.exbin.utils.binary_data.ByteArrayData;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Node of a generic record, which creates the nodes of its child records and of its properties,
+ * which are records or binary data, only when the children are requested the first time.
+ * <p>
+ * If another model, i.e. the HSLF model, replaces the entry of the node, that model attaches the children
+ * and the node behaves like a plain node.
+ */
+class GenericRecordNode extends TreeModelNode {
+    private final GenericRecord record;
+    GenericRecordNode(final GenericRecord record) {
+        this.record = record;
+    }
+
+    @Override
+    protected void loadChildren() {
+        if (!isGeneric()) {
+            return;
+        }
+        final Map<String, Supplier<?>> props = record.getGenericProperties();
+        if (props != null) {
+            props.forEach(this::addProperty);
+        }
+        GenericTreeModel.loadRecords(this, record);
+    }
+
+    @Override
+    protected boolean isLeafUnloaded() {
+        if (!isGeneric()) {
+            return super.isLeafUnloaded();
+        }
+        // the property values aren't evaluated for rendering the expand arrow, so a node with properties,
+        // which are neither records nor binary data, turns into a leaf, when it's expanded
+        final List<? extends GenericRecord> children = record.getGenericChildren();
+        final Map<String, Supplier<?>> props = record.getGenericProperties();
+        return (children == null || children.isEmpty()) && (props == null || props.isEmpty());
+    }
+
+    @Override
+    protected boolean canContainEmbedded() {
+        // the HSLF model replaces the entries of its records and attaches the embedded documents to them,
+        // the subtree of a plain generic record only consists of generic records and their properties
+        return !isGeneric();
+    }
+
+    private boolean isGeneric() {
+        return getValue() instanceof GenericRecordEntry;
+    }
+
+    private void addProperty(final String name, final Supplier<?> supplier) {
+        final Object value = supplier.get();
+        final TreeModelNode childNode;
+        if (value instanceof GenericRecord) {
+            final GenericRecord childRecord = (GenericRecord)value;
+            childNode = new GenericRecordNode(childRecord);
+            final GenericRecordEntry ge = new GenericRecordEntry(childRecord, childNode);
+            ge.setName(name);
+            childNode.setValue(ge);
+        } else if (value instanceof byte[]) {
+            final byte[] data = (byte[])value;
+            childNode = new TreeModelNode();
+            childNode.setValue(new GenericNamedEntry(name, (docFrag) -> {
+                // the array belongs to the record, so it's not editable
+                docFrag.setBinarySource(() -> new ByteArrayData(data));
+                docFrag.setSourceType(SourceType.octet);
+            }));
+        } else {
+            return;
+        }
+        addChild(childNode);
+    }
+}
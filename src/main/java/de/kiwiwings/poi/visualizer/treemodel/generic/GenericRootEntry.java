@@ -18,14 +18,14 @@ package de.kiwiwings.poi.visualizer.treemodel.generic;
 
 import de.kiwiwings.poi.visualizer.DocumentFragment;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
-import javafx.scene.control.TreeItem;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import org.apache.poi.common.usermodel.GenericRecord;
 
 import java.io.IOException;
 
 public class GenericRootEntry implements TreeModelEntry {
     final GenericRecord root;
-    final TreeItem<TreeModelEntry> treeNode;
+    final TreeModelNode treeNode;
     final TreeModelEntry surrugateEntry;
 
     @Override
@@ -34,7 +34,7 @@ public class GenericRootEntry implements TreeModelEntry {
         fragment.setSourceType(DocumentFragment.SourceType.empty);
     }
 
-    public GenericRootEntry(GenericRecord root, TreeItem<TreeModelEntry> treeNode) {
+    public GenericRootEntry(GenericRecord root, TreeModelNode treeNode) {
         this.root = root;
         this.treeNode = treeNode;
         surrugateEntry = treeNode.getValue();
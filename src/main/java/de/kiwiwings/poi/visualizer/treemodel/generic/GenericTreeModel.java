@@ -17,9 +17,9 @@
 package de.kiwiwings.poi.visualizer.treemodel.generic;
 
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelDirNodeSource;
-import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadContext;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadException;
-import javafx.scene.control.TreeItem;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import org.apache.poi.common.usermodel.GenericRecord;
 import org.apache.poi.hslf.usermodel.HSLFSlideShow;
 import org.apache.poi.poifs.filesystem.DirectoryNode;
@@ -29,11 +29,11 @@ import java.util.List;
 import static de.kiwiwings.poi.visualizer.treemodel.TreeModelUtils.getNamedTreeNode;
 
 public class GenericTreeModel implements TreeModelDirNodeSource {
-    private TreeItem<TreeModelEntry> parent;
+    private TreeModelNode parent;
     private GenericRecord root;
 
     @Override
-    public void load(TreeItem<TreeModelEntry> parent, DirectoryNode source) throws TreeModelLoadException {
+    public void load(TreeModelNode parent, DirectoryNode source, TreeModelLoadContext context) throws TreeModelLoadException {
         this.parent = parent;
 
         if (!source.hasEntry(HSLFSlideShow.POWERPOINT_DOCUMENT)) {
@@ -41,28 +41,35 @@ public class GenericTreeModel implements TreeModelDirNodeSource {
         }
 
         try {
-            GenericRecord root = new HSLFSlideShow(source);
-            final TreeItem<TreeModelEntry> slNode = getNamedTreeNode(parent, HSLFSlideShow.POWERPOINT_DOCUMENT);
+            GenericRecord root = context.getParsed(source, HSLFSlideShow.POWERPOINT_DOCUMENT, HSLFSlideShow.class, () -> new HSLFSlideShow(source));
+            context.checkCancelled();
+            final TreeModelNode slNode = getNamedTreeNode(parent, HSLFSlideShow.POWERPOINT_DOCUMENT);
             GenericRootEntry rootNode = new GenericRootEntry(root, slNode);
             slNode.setValue(rootNode);
-            loadRecords(slNode, root);
+            loadRecords(slNode, root, context);
         } catch (Exception e) {
             throw new TreeModelLoadException("Can't load HSLF slideshow",e);
         }
 
     }
 
-    static void loadRecords(final TreeItem<TreeModelEntry> parentNode, final GenericRecord parentRecord) {
+    static void loadRecords(final TreeModelNode parentNode, final GenericRecord parentRecord) {
+        loadRecords(parentNode, parentRecord, new TreeModelLoadContext());
+    }
+
+    private static void loadRecords(final TreeModelNode parentNode, final GenericRecord parentRecord, final TreeModelLoadContext context) {
         List<? extends GenericRecord> children = parentRecord.getGenericChildren();
         if (children == null) {
             return;
         }
 
-        children.forEach(c -> {
-            final TreeItem<TreeModelEntry> childNode = new TreeItem<>();
+        // the grandchildren are attached, when their parent node is expanded
+        context.addWork(children.size());
+        for (final GenericRecord c : children) {
+            final TreeModelNode childNode = new GenericRecordNode(c);
             childNode.setValue(new GenericRecordEntry(c, childNode));
-            parentNode.getChildren().add(childNode);
-            loadRecords(childNode, c);
-        });
+            parentNode.addChild(childNode);
+            context.worked(1);
+        }
     }
 }
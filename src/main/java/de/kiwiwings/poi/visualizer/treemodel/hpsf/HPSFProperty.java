@@ -19,7 +19,7 @@ package de.kiwiwings.poi.visualizer.treemodel.hpsf;
 import de.kiwiwings.poi.visualizer.DocumentFragment;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
 import de.kiwiwings.poi.visualizer.DocumentFragment.SourceType;
-import javafx.scene.control.TreeItem;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import org.apache.poi.hpsf.*;
 import org.apache.poi.hpsf.wellknown.PropertyIDMap;
 import org.apache.poi.util.LittleEndianByteArrayInputStream;
@@ -28,6 +28,7 @@ import org.exbin.utils.binary_data.ByteArrayEditableData;
 import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -37,10 +38,10 @@ public class HPSFProperty implements TreeModelEntry {
 
 	private final Property property;
 	@SuppressWarnings("unused")
-	private final TreeItem<TreeModelEntry> treeNode;
+	private final TreeModelNode treeNode;
 	PropertySet propertySet;
 
-	public HPSFProperty(final Property property, final TreeItem<TreeModelEntry> treeNode) {
+	public HPSFProperty(final Property property, final TreeModelNode treeNode) {
 		this.property = property;
 		this.treeNode = treeNode;
 	}
@@ -118,7 +119,7 @@ public class HPSFProperty implements TreeModelEntry {
 		return data;
 	}
 
-	private String getProperties(final DocumentFragment fragment) {
+	private JsonObject getProperties(final DocumentFragment fragment) {
 		final JsonObjectBuilder jsonBuilder = Json.createObjectBuilder();
 		final long id = property.getID();
 		jsonBuilder.add("ID", id);
@@ -186,7 +187,7 @@ public class HPSFProperty implements TreeModelEntry {
 			}
 			break;
 		}
-		return jsonBuilder.build().toString();
+		return jsonBuilder.build();
 	}
 
 	private static JsonArray vecArrToJson(TypedPropertyValue[] values, Property property, PropertySet propertySet) {
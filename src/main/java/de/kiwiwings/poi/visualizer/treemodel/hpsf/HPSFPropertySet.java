@@ -19,7 +19,7 @@ package de.kiwiwings.poi.visualizer.treemodel.hpsf;
 import de.kiwiwings.poi.visualizer.DocumentFragment;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
 import de.kiwiwings.poi.visualizer.DocumentFragment.SourceType;
-import javafx.scene.control.TreeItem;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import org.apache.poi.hpsf.PropertySet;
 import org.apache.poi.hpsf.WritingNotSupportedException;
 import org.exbin.utils.binary_data.ByteArrayEditableData;
@@ -33,10 +33,10 @@ public class HPSFPropertySet implements TreeModelEntry {
 
 	private final PropertySet propertySet;
 	@SuppressWarnings("unused")
-	private final TreeItem<TreeModelEntry> treeNode;
+	private final TreeModelNode treeNode;
 	final TreeModelEntry surrugateEntry;
 
-	public HPSFPropertySet(final PropertySet propertySet, final TreeItem<TreeModelEntry> treeNode) {
+	public HPSFPropertySet(final PropertySet propertySet, final TreeModelNode treeNode) {
 		this.propertySet = propertySet;
 		this.treeNode = treeNode;
 		surrugateEntry = treeNode.getValue();
@@ -19,7 +19,7 @@ package de.kiwiwings.poi.visualizer.treemodel.hpsf;
 import de.kiwiwings.poi.visualizer.DocumentFragment;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
 import de.kiwiwings.poi.visualizer.DocumentFragment.SourceType;
-import javafx.scene.control.TreeItem;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import org.apache.poi.hpsf.Section;
 import org.apache.poi.hpsf.WritingNotSupportedException;
 import org.exbin.utils.binary_data.ByteArrayEditableData;
@@ -33,9 +33,9 @@ public class HPSFSection implements TreeModelEntry {
 
 	private final Section section;
 	@SuppressWarnings("unused")
-	private final TreeItem<TreeModelEntry> treeNode;
+	private final TreeModelNode treeNode;
 
-	public HPSFSection(final Section section, final TreeItem<TreeModelEntry> treeNode) {
+	public HPSFSection(final Section section, final TreeModelNode treeNode) {
 		this.section = section;
 		this.treeNode = treeNode;
 	}
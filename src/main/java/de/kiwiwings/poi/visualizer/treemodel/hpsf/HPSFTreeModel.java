@@ -17,44 +17,40 @@
 package de.kiwiwings.poi.visualizer.treemodel.hpsf;
 
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelDirNodeSource;
-import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadContext;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadException;
-import javafx.scene.control.TreeItem;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import org.apache.poi.hpsf.*;
 import org.apache.poi.poifs.filesystem.DirectoryNode;
 
-import java.io.IOException;
-
 import static de.kiwiwings.poi.visualizer.treemodel.TreeModelUtils.getNamedTreeNode;
 
 public class HPSFTreeModel implements TreeModelDirNodeSource {
 
-	private TreeItem<TreeModelEntry> parent;
+	private TreeModelNode parent;
 
 	@Override
-	public void load(final TreeItem<TreeModelEntry> parent, final DirectoryNode source) throws TreeModelLoadException {
+	public void load(final TreeModelNode parent, final DirectoryNode source, final TreeModelLoadContext context) throws TreeModelLoadException {
 		if (!(source.hasEntry(DocumentSummaryInformation.DEFAULT_STREAM_NAME) ||
 			source.hasEntry(SummaryInformation.DEFAULT_STREAM_NAME))) {
 			throw new TreeModelLoadException("not a HPSF model");
 		}
 
 		this.parent = parent;
-		addPropertySet(source, SummaryInformation.DEFAULT_STREAM_NAME);
-		addPropertySet(source, DocumentSummaryInformation.DEFAULT_STREAM_NAME);
+		context.addWork(2);
+		addPropertySet(source, SummaryInformation.DEFAULT_STREAM_NAME, context);
+		context.worked(1);
+		addPropertySet(source, DocumentSummaryInformation.DEFAULT_STREAM_NAME, context);
+		context.worked(1);
 	}
 	
-	private void addPropertySet(final DirectoryNode dn, final String psName) throws TreeModelLoadException {
+	private void addPropertySet(final DirectoryNode dn, final String psName, final TreeModelLoadContext context) throws TreeModelLoadException {
 		if (!dn.hasEntry(psName)) {
 			return;
 		}
 
-		final PropertySet ps;
-		try {
-			ps = PropertySetFactory.create(dn, psName);
-		} catch (NoPropertySetStreamException | IOException e) {
-			throw new TreeModelLoadException("Can't load property set", e);
-		}
-		final TreeItem<TreeModelEntry> slNode = getNamedTreeNode(parent, psName);
+		final PropertySet ps = context.getParsed(dn, psName, PropertySet.class, () -> PropertySetFactory.create(dn, psName));
+		final TreeModelNode slNode = getNamedTreeNode(parent, psName);
 		final HPSFPropertySet psModel = new HPSFPropertySet(ps, slNode);
 		slNode.setValue(psModel);
 		
@@ -63,22 +59,22 @@ public class HPSFTreeModel implements TreeModelDirNodeSource {
 		}
 	}
 	
-	private void addSection(final Section section, final TreeItem<TreeModelEntry> parent, final PropertySet ps) {
-		TreeItem<TreeModelEntry> secNode = new TreeItem<>();
+	private void addSection(final Section section, final TreeModelNode parent, final PropertySet ps) {
+		TreeModelNode secNode = new TreeModelNode();
 		final HPSFSection secModel = new HPSFSection(section, secNode);
 		secNode.setValue(secModel);
-		parent.getChildren().add(secNode);
+		parent.addChild(secNode);
 		
 		for (final Property p : section.getProperties()) {
 			addProperty(p, secNode, ps);
 		}
 	}
 
-	private void addProperty(final Property property, final TreeItem<TreeModelEntry> parent, final PropertySet ps) {
-		TreeItem<TreeModelEntry> propNode = new TreeItem<TreeModelEntry>();
+	private void addProperty(final Property property, final TreeModelNode parent, final PropertySet ps) {
+		TreeModelNode propNode = new TreeModelNode();
 		final HPSFProperty propModel = new HPSFProperty(property, propNode);
 		propModel.setPropertySet(ps);
 		propNode.setValue(propModel);
-		parent.getChildren().add(propNode);
+		parent.addChild(propNode);
 	}
 }
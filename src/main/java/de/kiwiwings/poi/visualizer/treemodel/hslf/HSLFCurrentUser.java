@@ -19,7 +19,7 @@ package de.kiwiwings.poi.visualizer.treemodel.hslf;
 import de.kiwiwings.poi.visualizer.DocumentFragment;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
 import de.kiwiwings.poi.visualizer.DocumentFragment.SourceType;
-import javafx.scene.control.TreeItem;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import org.apache.poi.hslf.record.CurrentUserAtom;
 import org.exbin.utils.binary_data.ByteArrayEditableData;
 
@@ -32,9 +32,9 @@ public class HSLFCurrentUser implements TreeModelEntry {
 
 	private final CurrentUserAtom currentUser;
 	@SuppressWarnings("unused")
-	private final TreeItem<TreeModelEntry> treeNode;
+	private final TreeModelNode treeNode;
 
-	public HSLFCurrentUser(final CurrentUserAtom currentUser, final TreeItem<TreeModelEntry> treeNode) {
+	public HSLFCurrentUser(final CurrentUserAtom currentUser, final TreeModelNode treeNode) {
 		this.currentUser = currentUser;
 		this.treeNode = treeNode;
 	}
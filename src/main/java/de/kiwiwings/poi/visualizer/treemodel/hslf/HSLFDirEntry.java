@@ -18,8 +18,7 @@ package de.kiwiwings.poi.visualizer.treemodel.hslf;
 
 import de.kiwiwings.poi.visualizer.DocumentFragment;
 import de.kiwiwings.poi.visualizer.DocumentFragment.SourceType;
-import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
-import javafx.scene.control.TreeItem;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import org.apache.poi.hslf.record.Record;
 import org.exbin.utils.binary_data.ByteArrayEditableData;
 
@@ -27,7 +26,7 @@ import java.io.IOException;
 
 public class HSLFDirEntry extends HSLFEntry {
 
-	public HSLFDirEntry(final Record path, final TreeItem<TreeModelEntry> treeNode) {
+	public HSLFDirEntry(final Record path, final TreeModelNode treeNode) {
 		super(path, treeNode);
 	}
 
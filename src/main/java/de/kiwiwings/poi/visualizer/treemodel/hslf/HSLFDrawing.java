@@ -19,7 +19,7 @@ package de.kiwiwings.poi.visualizer.treemodel.hslf;
 import de.kiwiwings.poi.visualizer.DocumentFragment;
 import de.kiwiwings.poi.visualizer.DocumentFragment.SourceType;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
-import javafx.scene.control.TreeItem;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import org.apache.poi.hslf.record.PPDrawing;
 import org.apache.poi.hslf.record.Record;
 import org.exbin.utils.binary_data.ByteArrayEditableData;
@@ -34,9 +34,9 @@ public class HSLFDrawing implements TreeModelEntry {
 
 	private final PPDrawing drawing;
 	@SuppressWarnings("unused")
-	private final TreeItem<TreeModelEntry> treeNode;
+	private final TreeModelNode treeNode;
 
-	public HSLFDrawing(final Record drawing, final TreeItem<TreeModelEntry> treeNode) {
+	public HSLFDrawing(final Record drawing, final TreeModelNode treeNode) {
 		this.drawing = (PPDrawing)drawing;
 		this.treeNode = treeNode;
 	}
@@ -18,32 +18,39 @@ package de.kiwiwings.poi.visualizer.treemodel.hslf;
 
 import de.kiwiwings.poi.visualizer.DocumentFragment;
 import de.kiwiwings.poi.visualizer.DocumentFragment.SourceType;
+import de.kiwiwings.poi.visualizer.treemodel.EmbeddedContainer;
+import de.kiwiwings.poi.visualizer.treemodel.EmbeddedPayload;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadContext;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadException;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import de.kiwiwings.poi.visualizer.treemodel.opc.OPCTreeModel;
-import javafx.scene.control.TreeItem;
 import org.apache.poi.hslf.record.Record;
 import org.apache.poi.hslf.record.UnknownRecordPlaceholder;
 import org.apache.poi.poifs.filesystem.FileMagic;
-import org.apache.poi.util.IOUtils;
-import org.apache.poi.util.TempFile;
 import org.exbin.utils.binary_data.ByteArrayEditableData;
-import org.apache.commons.io.input.BoundedInputStream;
 
-import java.io.*;
+import java.io.IOException;
+import java.io.OutputStream;
 
 import static de.kiwiwings.poi.visualizer.treemodel.TreeModelUtils.escapeString;
 import static de.kiwiwings.poi.visualizer.treemodel.TreeModelUtils.reflectProperties;
 
-public class HSLFEntry implements TreeModelEntry {
+public class HSLFEntry implements TreeModelEntry, EmbeddedContainer {
 
 	private final Record record;
 	@SuppressWarnings("unused")
-	private final TreeItem<TreeModelEntry> treeNode;
+	private final TreeModelNode treeNode;
 	final TreeModelEntry surrugateEntry;
-	File opcFile;
-
-	public HSLFEntry(final Record record, final TreeItem<TreeModelEntry> treeNode) {
+	EmbeddedPayload payload;
+	// set, if the embedded package couldn't be loaded
+	private Exception loadFailure;
+	// null until the record has been checked for an embedded package
+	private Boolean embedded;
+	// TreeView cells call toString() on every layout, so don't serialize the record each time
+	private String label;
+
+	public HSLFEntry(final Record record, final TreeModelNode treeNode) {
 		this.record = record;
 		this.treeNode = treeNode;
 		this.surrugateEntry = treeNode.getValue();
@@ -52,16 +59,24 @@ public class HSLFEntry implements TreeModelEntry {
 
 	@Override
 	public String toString() {
-		CountingOS cnt = new CountingOS();
-		try {
-			record.writeOut(cnt);
-		} catch (IOException ignored) {
+		if (label == null) {
+			CountingOS cnt = new CountingOS();
+			try {
+				record.writeOut(cnt);
+			} catch (IOException ignored) {
+			}
+
+			String name = (record instanceof UnknownRecordPlaceholder)
+				? ((UnknownRecordPlaceholder) record).getRecordTypeEnum().name()
+				: record.getClass().getSimpleName();
+			label = escapeString(name)+" ("+cnt.size()+" b)";
 		}
+		return label;
+	}
 
-		String name = (record instanceof UnknownRecordPlaceholder)
-			? ((UnknownRecordPlaceholder) record).getRecordTypeEnum().name()
-			: record.getClass().getSimpleName();
-		return escapeString(name)+" ("+cnt.size()+" b)";
+	@Override
+	public void invalidate() {
+		label = null;
 	}
 
 
@@ -78,43 +93,57 @@ public class HSLFEntry implements TreeModelEntry {
 	}
 
 	private ByteArrayEditableData getData(final DocumentFragment fragment) throws IOException, TreeModelLoadException {
-		final ByteArrayEditableData data = new ByteArrayEditableData();
-		try (final OutputStream os = data.getDataOutputStream()) {
-			record.writeOut(os);
+		if (hasEmbedded() && loadEmbedded()) {
+			treeNode.getValue().activate(fragment);
 		}
+		return serialize();
+	}
 
-		if (record instanceof UnknownRecordPlaceholder && data.getDataSize() > 16) {
-			final byte[] magic = new byte[8];
-			// skip header
-			data.copyToArray(8, magic, 0, 8);
-			FileMagic fm = FileMagic.valueOf(magic);
-			if (fm == FileMagic.OOXML) {
-				if (opcFile == null) {
-					try (InputStream is = new BoundedInputStream(data.getDataInputStream(),data.getDataSize())) {
-						opcFile = copyToTempFile(is);
-					}
-					OPCTreeModel opcNode = new OPCTreeModel();
-					opcNode.load(treeNode, opcFile);
-					treeNode.getValue().activate(fragment);
+	@Override
+	public synchronized boolean hasEmbedded() throws IOException {
+		if (embedded == null) {
+			embedded = false;
+			if (record instanceof UnknownRecordPlaceholder) {
+				final ByteArrayEditableData data = serialize();
+				if (data.getDataSize() > 16) {
+					final byte[] magic = new byte[8];
+					// skip header
+					data.copyToArray(8, magic, 0, 8);
+					embedded = FileMagic.valueOf(magic) == FileMagic.OOXML;
 				}
 			}
 		}
-
-		return data;
-
-
+		return embedded;
 	}
 
-	private File copyToTempFile(InputStream is) throws IOException {
-		final String prefix = record.getClass().getSimpleName() + "-";
-		final String suffix = ".zip";
+	@Override
+	public synchronized boolean loadEmbedded() throws IOException, TreeModelLoadException {
+		if (loadFailure != null) {
+			throw new TreeModelLoadException("Can't load the embedded document", loadFailure);
+		}
+		if (payload != null || !hasEmbedded()) {
+			return false;
+		}
+		final ByteArrayEditableData data = serialize();
+		// the package follows the record header
+		final EmbeddedPayload embeddedPayload = EmbeddedPayload.wrap(data.getData(), 8, (int)data.getDataSize() - 8);
+		try {
+			OPCTreeModel opcNode = new OPCTreeModel();
+			opcNode.load(treeNode, embeddedPayload, new TreeModelLoadContext());
+		} catch (TreeModelLoadException|RuntimeException ex) {
+			loadFailure = ex;
+			throw ex;
+		}
+		payload = embeddedPayload;
+		return true;
+	}
 
-		final File of = TempFile.createTempFile(prefix, suffix);
-		try (FileOutputStream fos = new FileOutputStream(of)) {
-			IOUtils.copy(is, fos);
+	private ByteArrayEditableData serialize() throws IOException {
+		final ByteArrayEditableData data = new ByteArrayEditableData();
+		try (final OutputStream os = data.getDataOutputStream()) {
+			record.writeOut(os);
 		}
-		of.deleteOnExit();
-		return of;
+		return data;
 	}
 
 	static class CountingOS extends OutputStream {
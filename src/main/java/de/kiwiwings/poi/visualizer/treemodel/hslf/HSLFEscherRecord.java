@@ -18,30 +18,35 @@ package de.kiwiwings.poi.visualizer.treemodel.hslf;
 
 import de.kiwiwings.poi.visualizer.DocumentFragment;
 import de.kiwiwings.poi.visualizer.DocumentFragment.SourceType;
+import de.kiwiwings.poi.visualizer.treemodel.EmbeddedContainer;
+import de.kiwiwings.poi.visualizer.treemodel.EmbeddedPayload;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadContext;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadException;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import de.kiwiwings.poi.visualizer.treemodel.opc.OPCTreeModel;
-import javafx.scene.control.TreeItem;
 import org.apache.poi.ddf.*;
-import org.apache.poi.util.TempFile;
+import org.apache.poi.poifs.filesystem.FileMagic;
 import org.exbin.utils.binary_data.ByteArrayEditableData;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 
 import static de.kiwiwings.poi.visualizer.treemodel.TreeModelUtils.reflectProperties;
 
-public class HSLFEscherRecord implements TreeModelEntry {
+public class HSLFEscherRecord implements TreeModelEntry, EmbeddedContainer {
 
 	private final EscherRecord escher;
 	@SuppressWarnings("unused")
-	private final TreeItem<TreeModelEntry> treeNode;
+	private final TreeModelNode treeNode;
 
-	private File opcFile;
+	private EmbeddedPayload payload;
+	// set, if the metro blob couldn't be loaded
+	private Exception loadFailure;
+	// the size of containers is summed up over all children, so it's cached for the tree cells
+	private String label;
 
 
-	public HSLFEscherRecord(final EscherRecord escher, final TreeItem<TreeModelEntry> treeNode) {
+	public HSLFEscherRecord(final EscherRecord escher, final TreeModelNode treeNode) {
 		this.escher = escher;
 		this.treeNode = treeNode;
 	}
@@ -49,7 +54,15 @@ public class HSLFEscherRecord implements TreeModelEntry {
 
 	@Override
 	public String toString() {
-		return escher.getClass().getSimpleName()+" ("+escher.getRecordSize()+" b)";
+		if (label == null) {
+			label = escher.getClass().getSimpleName()+" ("+escher.getRecordSize()+" b)";
+		}
+		return label;
+	}
+
+	@Override
+	public void invalidate() {
+		label = null;
 	}
 
 
@@ -67,29 +80,50 @@ public class HSLFEscherRecord implements TreeModelEntry {
 
 	private ByteArrayEditableData getData(final DocumentFragment fragment) throws IOException, TreeModelLoadException {
 		final byte[] data = escher.serialize();
-		if (escher instanceof EscherTertiaryOptRecord && opcFile == null) {
-			final EscherTertiaryOptRecord opt = (EscherTertiaryOptRecord)escher;
-			for (final EscherProperty ep : opt.getEscherProperties()) {
-				if (EscherPropertyTypes.GROUPSHAPE__METROBLOB.getPropertyId() == ep.getPropertyNumber()) {
-					opcFile = copyToTempFile(((EscherComplexProperty)ep).getComplexData());
-					OPCTreeModel poifsNode = new OPCTreeModel();
-					poifsNode.load(treeNode, opcFile);
-					treeNode.getValue().activate(fragment);
-				}
-			}
+		if (hasEmbedded() && loadEmbedded()) {
+			treeNode.getValue().activate(fragment);
 		}
 		return new ByteArrayEditableData(data);
 	}
 
-	private File copyToTempFile(byte[] data) throws IOException {
-		final String prefix = "metro-"+escher.getRecordId()+"-";
-		final String suffix = ".dat";
+	@Override
+	public boolean hasEmbedded() {
+		final byte[] blob = getMetroBlob();
+		return blob != null && blob.length >= 8 && FileMagic.valueOf(blob) == FileMagic.OOXML;
+	}
+
+	@Override
+	public synchronized boolean loadEmbedded() throws TreeModelLoadException {
+		if (loadFailure != null) {
+			throw new TreeModelLoadException("Can't load the embedded document", loadFailure);
+		}
+		if (payload != null || !hasEmbedded()) {
+			return false;
+		}
+		final EmbeddedPayload embeddedPayload = EmbeddedPayload.wrap(getMetroBlob());
+		try {
+			OPCTreeModel poifsNode = new OPCTreeModel();
+			poifsNode.load(treeNode, embeddedPayload, new TreeModelLoadContext());
+		} catch (TreeModelLoadException|RuntimeException ex) {
+			loadFailure = ex;
+			throw ex;
+		}
+		payload = embeddedPayload;
+		return true;
+	}
 
-		final File of = TempFile.createTempFile(prefix, suffix);
-		try (FileOutputStream fos = new FileOutputStream(of)) {
-			fos.write(data);
+	/**
+	 * @return the metro blob of a group shape, i.e. the shapes as ooxml package, or {@code null}
+	 */
+	private byte[] getMetroBlob() {
+		if (escher instanceof EscherTertiaryOptRecord) {
+			final EscherTertiaryOptRecord opt = (EscherTertiaryOptRecord)escher;
+			for (final EscherProperty ep : opt.getEscherProperties()) {
+				if (EscherPropertyTypes.GROUPSHAPE__METROBLOB.getPropertyId() == ep.getPropertyNumber()) {
+					return ((EscherComplexProperty)ep).getComplexData();
+				}
+			}
 		}
-		of.deleteOnExit();
-		return of;
+		return null;
 	}
 }
@@ -19,7 +19,7 @@ package de.kiwiwings.poi.visualizer.treemodel.hslf;
 import de.kiwiwings.poi.visualizer.DocumentFragment;
 import de.kiwiwings.poi.visualizer.DocumentFragment.SourceType;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
-import javafx.scene.control.TreeItem;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import org.exbin.utils.binary_data.ByteArrayEditableData;
 
 import java.io.IOException;
@@ -30,9 +30,9 @@ public class HSLFNamedEntry implements TreeModelEntry {
 
 	private final String name;
 	@SuppressWarnings("unused")
-	private final TreeItem<TreeModelEntry> treeNode;
+	private final TreeModelNode treeNode;
 
-	public HSLFNamedEntry(final String name, final TreeItem<TreeModelEntry> treeNode) {
+	public HSLFNamedEntry(final String name, final TreeModelNode treeNode) {
 		this.name = name;
 		this.treeNode = treeNode;
 	}
@@ -53,6 +53,6 @@ public class HSLFNamedEntry implements TreeModelEntry {
 		fragment.setBinarySource(ByteArrayEditableData::new);
 		fragment.setSourceType(SourceType.empty);
 		fragment.setFileName(null);
-		fragment.setProperties("");
+		fragment.setProperties(null);
 	}
 }
@@ -17,29 +17,37 @@
 package de.kiwiwings.poi.visualizer.treemodel.hslf;
 
 import de.kiwiwings.poi.visualizer.DocumentFragment;
+import de.kiwiwings.poi.visualizer.treemodel.EmbeddedContainer;
+import de.kiwiwings.poi.visualizer.treemodel.EmbeddedPayload;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadContext;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadException;
 import de.kiwiwings.poi.visualizer.DocumentFragment.SourceType;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import de.kiwiwings.poi.visualizer.treemodel.ole.OLETreeModel;
-import javafx.scene.control.TreeItem;
 import org.apache.poi.hslf.record.ExOleObjStg;
 import org.apache.poi.poifs.filesystem.FileMagic;
-import org.apache.poi.util.IOUtils;
-import org.apache.poi.util.TempFile;
+import org.exbin.utils.binary_data.BinaryData;
 import org.exbin.utils.binary_data.ByteArrayEditableData;
 
-import java.io.*;
+import java.io.IOException;
+import java.io.InputStream;
 
-public class HSLFOleEmbed implements TreeModelEntry {
+
+public class HSLFOleEmbed implements TreeModelEntry, EmbeddedContainer {
 
 	private final ExOleObjStg embed;
 	@SuppressWarnings("unused")
-	private final TreeItem<TreeModelEntry> treeNode;
+	private final TreeModelNode treeNode;
 
-	private File oleFile;
+	private EmbeddedPayload payload;
+	// set, if the embedded file system couldn't be loaded
+	private Exception loadFailure;
+	// null until the header of the embedding has been checked
+	private Boolean embedded;
 
 	
-	HSLFOleEmbed(final ExOleObjStg embed, final TreeItem<TreeModelEntry> treeNode) {
+	HSLFOleEmbed(final ExOleObjStg embed, final TreeModelNode treeNode) {
 		this.embed = embed;
 		this.treeNode = treeNode;
 	}
@@ -64,39 +72,52 @@ public class HSLFOleEmbed implements TreeModelEntry {
 		fragment.setProperties(null);
 	}
 
-	private ByteArrayEditableData getData(final DocumentFragment fragment) throws IOException, TreeModelLoadException {
-		FileMagic fm;
-		try (InputStream is = FileMagic.prepareToCheckMagic(embed.getData())) {
-			final ByteArrayEditableData data = new ByteArrayEditableData();
-			fm = FileMagic.valueOf(is);
-			if (fm == FileMagic.OLE2) {
-				if (oleFile == null) {
-					oleFile = copyToTempFile(is);
-					OLETreeModel poifsNode = new OLETreeModel();
-					poifsNode.load(treeNode, oleFile);
-					treeNode.getValue().activate(fragment);
-				}
-				
-				try (InputStream is2 = new FileInputStream(oleFile)) {
-					data.loadFromStream(is2);
-				}
-			} else {
-				data.loadFromStream(is);
+	private BinaryData getData(final DocumentFragment fragment) throws IOException, TreeModelLoadException {
+		if (hasEmbedded()) {
+			if (loadEmbedded()) {
+				treeNode.getValue().activate(fragment);
 			}
+			return payload.getBinaryData();
+		}
+
+		try (InputStream is = embed.getData()) {
+			final ByteArrayEditableData data = new ByteArrayEditableData();
+			data.loadFromStream(is);
 			return data;
 		}
 	}
 
-	private File copyToTempFile(InputStream is) throws IOException {
-		final String prefix = "embed-"+embed.getPersistId()+"-";
-		final String suffix = ".dat";
+	@Override
+	public synchronized boolean hasEmbedded() throws IOException {
+		if (embedded == null) {
+			try (InputStream is = FileMagic.prepareToCheckMagic(embed.getData())) {
+				embedded = FileMagic.valueOf(is) == FileMagic.OLE2;
+			}
+		}
+		return embedded;
+	}
 
-		final File of = TempFile.createTempFile(prefix, suffix);
-		try (FileOutputStream fos = new FileOutputStream(of)) {
-			IOUtils.copy(is, fos);
+	@Override
+	public synchronized boolean loadEmbedded() throws IOException, TreeModelLoadException {
+		if (loadFailure != null) {
+			throw new TreeModelLoadException("Can't load the embedded document", loadFailure);
+		}
+		if (payload != null || !hasEmbedded()) {
+			return false;
+		}
+		final EmbeddedPayload embeddedPayload;
+		try (InputStream is = embed.getData()) {
+			embeddedPayload = EmbeddedPayload.read(is, treeNode.getTempStore(), "embed-"+embed.getPersistId()+"-", ".dat");
+		}
+		try {
+			OLETreeModel poifsNode = new OLETreeModel();
+			poifsNode.load(treeNode, embeddedPayload, new TreeModelLoadContext());
+		} catch (TreeModelLoadException|RuntimeException ex) {
+			loadFailure = ex;
+			throw ex;
 		}
-		of.deleteOnExit();
-		return of;
+		payload = embeddedPayload;
+		return true;
 	}
 
 	
@@ -19,7 +19,7 @@ package de.kiwiwings.poi.visualizer.treemodel.hslf;
 import de.kiwiwings.poi.visualizer.DocumentFragment;
 import de.kiwiwings.poi.visualizer.DocumentFragment.SourceType;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
-import javafx.scene.control.TreeItem;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import org.apache.poi.hslf.usermodel.HSLFPictureData;
 import org.exbin.utils.binary_data.ByteArrayEditableData;
 
@@ -31,9 +31,9 @@ public class HSLFPictureEntry implements TreeModelEntry {
 
 	private final HSLFPictureData picture;
 	@SuppressWarnings("unused")
-	private final TreeItem<TreeModelEntry> treeNode;
+	private final TreeModelNode treeNode;
 
-	public HSLFPictureEntry(final HSLFPictureData picture, final TreeItem<TreeModelEntry> treeNode) {
+	public HSLFPictureEntry(final HSLFPictureData picture, final TreeModelNode treeNode) {
 		this.picture = picture;
 		this.treeNode = treeNode;
 	}
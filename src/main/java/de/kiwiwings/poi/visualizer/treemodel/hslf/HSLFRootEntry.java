@@ -18,7 +18,7 @@ package de.kiwiwings.poi.visualizer.treemodel.hslf;
 
 import de.kiwiwings.poi.visualizer.DocumentFragment;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
-import javafx.scene.control.TreeItem;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import org.apache.poi.hslf.usermodel.HSLFSlideShow;
 
 import java.io.IOException;
@@ -26,10 +26,10 @@ import java.io.IOException;
 
 public class HSLFRootEntry implements TreeModelEntry {
 	HSLFSlideShow ppt;
-	final TreeItem<TreeModelEntry> treeNode;
+	final TreeModelNode treeNode;
 	final TreeModelEntry surrugateEntry;
 
-	public HSLFRootEntry(HSLFSlideShow ppt, TreeItem<TreeModelEntry> treeNode) {
+	public HSLFRootEntry(HSLFSlideShow ppt, TreeModelNode treeNode) {
 		this.ppt = ppt;
 		this.treeNode = treeNode;
 		surrugateEntry = treeNode.getValue();
@@ -16,8 +16,7 @@
 
 package de.kiwiwings.poi.visualizer.treemodel.hslf;
 
-import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
-import javafx.scene.control.TreeItem;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import org.apache.poi.hslf.record.Record;
 import org.apache.poi.hslf.record.Slide;
 
@@ -25,7 +24,7 @@ public class HSLFSlideEntry extends HSLFDirEntry {
 
 	private final Slide slide;
 
-	public HSLFSlideEntry(final Record slide, final TreeItem<TreeModelEntry> treeNode) {
+	public HSLFSlideEntry(final Record slide, final TreeModelNode treeNode) {
 		super(slide, treeNode);
 		this.slide = (Slide)slide;
 	}
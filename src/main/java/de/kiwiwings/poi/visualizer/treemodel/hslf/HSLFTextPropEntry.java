@@ -19,7 +19,7 @@ package de.kiwiwings.poi.visualizer.treemodel.hslf;
 import de.kiwiwings.poi.visualizer.DocumentFragment;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
 import de.kiwiwings.poi.visualizer.DocumentFragment.SourceType;
-import javafx.scene.control.TreeItem;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import org.apache.poi.hslf.model.textproperties.TextProp;
 import org.exbin.utils.binary_data.ByteArrayEditableData;
 
@@ -32,9 +32,9 @@ public class HSLFTextPropEntry implements TreeModelEntry {
 
 	private final TextProp textProp;
 	@SuppressWarnings("unused")
-	private final TreeItem<TreeModelEntry> treeNode;
+	private final TreeModelNode treeNode;
 
-	public HSLFTextPropEntry(final TextProp textProp, final TreeItem<TreeModelEntry> treeNode) {
+	public HSLFTextPropEntry(final TextProp textProp, final TreeModelNode treeNode) {
 		this.textProp = textProp;
 		this.treeNode = treeNode;
 	}
@@ -18,11 +18,11 @@ package de.kiwiwings.poi.visualizer.treemodel.hslf;
 
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelDirNodeSource;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadContext;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadException;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import de.kiwiwings.poi.visualizer.treemodel.generic.GenericRecordEntry;
-import de.kiwiwings.poi.visualizer.treemodel.generic.GenericRootEntry;
-import javafx.collections.ObservableList;
-import javafx.scene.control.TreeItem;
+import org.apache.poi.common.usermodel.GenericRecord;
 import org.apache.poi.ddf.EscherContainerRecord;
 import org.apache.poi.ddf.EscherRecord;
 import org.apache.poi.ddf.EscherTextboxRecord;
@@ -35,38 +35,41 @@ import org.apache.poi.hslf.usermodel.HSLFSlideShow;
 import org.apache.poi.poifs.filesystem.DirectoryNode;
 
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.BiFunction;
-import java.util.function.Predicate;
 
 import static de.kiwiwings.poi.visualizer.treemodel.TreeModelUtils.getNamedTreeNode;
 
 public class HSLFTreeModel implements TreeModelDirNodeSource {
 
-	private TreeItem<TreeModelEntry> parent;
+	private TreeModelNode parent;
 
 	private HSLFSlideShow ppt;
 
+	private TreeModelLoadContext context;
+
 	@Override
-	public void load(final TreeItem<TreeModelEntry> parent, final DirectoryNode source) throws TreeModelLoadException {
+	public void load(final TreeModelNode parent, final DirectoryNode source, final TreeModelLoadContext context) throws TreeModelLoadException {
 		this.parent = parent;
+		this.context = context;
 
 		if (!source.hasEntry(HSLFSlideShow.POWERPOINT_DOCUMENT)) {
 			throw new TreeModelLoadException("not a HSLF model");
 		}
 
 		try {
-			final TreeItem<TreeModelEntry> slNode = getNamedTreeNode(parent, HSLFSlideShow.POWERPOINT_DOCUMENT);
-			if (slNode.getValue() instanceof GenericRootEntry) {
-				GenericRootEntry ge = (GenericRootEntry)slNode.getValue();
-				ppt = (HSLFSlideShow)ge.getRoot();
-			} else {
-				ppt = new HSLFSlideShow(source);
-			}
+			final TreeModelNode slNode = getNamedTreeNode(parent, HSLFSlideShow.POWERPOINT_DOCUMENT);
+			ppt = context.getParsed(source, HSLFSlideShow.POWERPOINT_DOCUMENT, HSLFSlideShow.class, () -> new HSLFSlideShow(source));
+			context.checkCancelled();
 			HSLFRootEntry rootNode = new HSLFRootEntry(ppt, slNode);
 			slNode.setValue(rootNode);
-			loadRecords(slNode,ppt.getSlideShowImpl().getRecords());
-			final TreeItem<TreeModelEntry> picNode = getNamedTreeNode(parent, "Pictures");
+			// only the top level records are merged with the nodes of the generic model - the generic nodes
+			// below them are created lazily and leave their children to the model, which replaced their entry
+			loadRecords(slNode, ppt.getSlideShowImpl().getRecords(), indexGenericEntries(slNode.getChildren()));
+			context.checkCancelled();
+			final TreeModelNode picNode = getNamedTreeNode(parent, "Pictures");
 			loadPictures(picNode);
 			loadCurrentUser(parent);
 		} catch (Exception e) {
@@ -74,10 +77,15 @@ public class HSLFTreeModel implements TreeModelDirNodeSource {
 		}
 	}
 
-	private void loadRecords(final TreeItem<TreeModelEntry> parentNode, final Record[] records) {
+	private void loadRecords(final TreeModelNode parentNode, final Record[] records) {
+		loadRecords(parentNode, records, Collections.emptyMap());
+	}
+
+	private void loadRecords(final TreeModelNode parentNode, final Record[] records, final Map<GenericRecord,TreeModelNode> genericItems) {
 		int parentTextSize = 0;
+		context.addWork(records.length);
 		for (final Record r : records) {
-			final BiFunction<Record,TreeItem<TreeModelEntry>,TreeModelEntry> newTME;
+			final BiFunction<Record,TreeModelNode,TreeModelEntry> newTME;
 			if (r instanceof Slide) {
 				newTME = HSLFSlideEntry::new;
 			}else if (r instanceof RecordContainer) {
@@ -88,13 +96,13 @@ public class HSLFTreeModel implements TreeModelDirNodeSource {
 				newTME = HSLFEntry::new;
 			}
 
-			ObservableList<TreeItem<TreeModelEntry>> children = parentNode.getChildren();
-			final TreeItem<TreeModelEntry> oldItem = children.stream().filter(matchGenericEntry(r)).findFirst().orElse(null);
-			final TreeItem<TreeModelEntry> childNode = (oldItem != null) ? oldItem : new TreeItem<>();
+			final TreeModelNode oldItem = genericItems.get(r);
+			final TreeModelNode childNode = (oldItem != null) ? oldItem : new TreeModelNode();
 			childNode.setValue(newTME.apply(r, childNode));
 			if (oldItem == null) {
-				parentNode.getChildren().add(childNode);
+				parentNode.addChild(childNode);
 			}
+			context.worked(1);
 
 			// need to store text size, in case we need to parse a styletextproperties atom later
 			if (r instanceof TextBytesAtom) {
@@ -125,59 +133,66 @@ public class HSLFTreeModel implements TreeModelDirNodeSource {
 		}
 	}
 
-	private static Predicate<TreeItem<TreeModelEntry>> matchGenericEntry(Record r) {
-		return (item) -> {
-			TreeModelEntry entry = item.getValue();
-			return entry instanceof GenericRecordEntry &&
-			   ((GenericRecordEntry)entry).getRecord() == r;
-		};
+	/**
+	 * Index the items, which were already added by the GenericTreeModel, by their record -
+	 * the records are compared by identity, as the HSLF entries wrap the same record instances
+	 */
+	private static Map<GenericRecord,TreeModelNode> indexGenericEntries(final List<TreeModelNode> children) {
+		final Map<GenericRecord,TreeModelNode> index = new IdentityHashMap<>();
+		for (final TreeModelNode item : children) {
+			final TreeModelEntry entry = item.getValue();
+			if (entry instanceof GenericRecordEntry) {
+				index.putIfAbsent(((GenericRecordEntry)entry).getRecord(), item);
+			}
+		}
+		return index;
 	}
 
-	private void loadTextProp(final TreeItem<TreeModelEntry> parentNode, String name, List<TextPropCollection> props) {
-		final TreeItem<TreeModelEntry> childNode = new TreeItem<>();
+	private void loadTextProp(final TreeModelNode parentNode, String name, List<TextPropCollection> props) {
+		final TreeModelNode childNode = new TreeModelNode();
 		final HSLFNamedEntry childNE = new HSLFNamedEntry(name, childNode);
 		childNode.setValue(childNE);
-		parentNode.getChildren().add(childNode);
+		parentNode.addChild(childNode);
 		int textBegin = 0;
 		for (TextPropCollection tpc : props) {
 			final int textEnd = textBegin+tpc.getCharactersCovered();
-			final TreeItem<TreeModelEntry> textNode = new TreeItem<>();
+			final TreeModelNode textNode = new TreeModelNode();
 			final HSLFNamedEntry textNE = new HSLFNamedEntry(textBegin+"-"+textEnd+" (i"+tpc.getIndentLevel()+")", textNode);
 			textNode.setValue(textNE);
-			childNode.getChildren().add(textNode);
+			childNode.addChild(textNode);
 			textBegin = textEnd;
 			for (TextProp tp : tpc.getTextPropList()) {
-				final TreeItem<TreeModelEntry> propNode = new TreeItem<>();
+				final TreeModelNode propNode = new TreeModelNode();
 				final HSLFTextPropEntry propEntry = new HSLFTextPropEntry(tp, propNode);
 				propNode.setValue(propEntry);
-				textNode.getChildren().add(propNode);
+				textNode.addChild(propNode);
 			}
 		}
 	}
 
-	private void loadOleEmbed(final TreeItem<TreeModelEntry> parentNode, ExOleObjStg record) {
-		final TreeItem<TreeModelEntry> childNode = new TreeItem<>();
+	private void loadOleEmbed(final TreeModelNode parentNode, ExOleObjStg record) {
+		final TreeModelNode childNode = new TreeModelNode();
 		final TreeModelEntry oleEntry = new HSLFOleEmbed(record, childNode);
 		childNode.setValue(oleEntry);
-		parentNode.getChildren().add(childNode);
+		parentNode.addChild(childNode);
 	}
 
-	private void loadPictures(final TreeItem<TreeModelEntry> parentNode) {
+	private void loadPictures(final TreeModelNode parentNode) {
 		for (HSLFPictureData p : ppt.getPictureData()) {
-			final TreeItem<TreeModelEntry> childNode = new TreeItem<>();
+			final TreeModelNode childNode = new TreeModelNode();
 			final HSLFPictureEntry pic = new HSLFPictureEntry(p, childNode);
 			childNode.setValue(pic);
-			parentNode.getChildren().add(childNode);
+			parentNode.addChild(childNode);
 		}
 
 	}
 
-	private void loadEscherRecords(final TreeItem<TreeModelEntry> parentNode, List<EscherRecord> records) {
+	private void loadEscherRecords(final TreeModelNode parentNode, List<EscherRecord> records) {
 		for (EscherRecord r : records) {
-			final TreeItem<TreeModelEntry> childNode = new TreeItem<>();
+			final TreeModelNode childNode = new TreeModelNode();
 			final HSLFEscherRecord escher = new HSLFEscherRecord(r, childNode);
 			childNode.setValue(escher);
-			parentNode.getChildren().add(childNode);
+			parentNode.addChild(childNode);
 			if (r instanceof EscherContainerRecord) {
 				loadEscherRecords(childNode, ((EscherContainerRecord)r).getChildRecords());
 			} else if (r instanceof HSLFEscherClientDataRecord) {
@@ -190,8 +205,8 @@ public class HSLFTreeModel implements TreeModelDirNodeSource {
 		}
 	}
 
-	private void loadCurrentUser(final TreeItem<TreeModelEntry> parentNode) {
-		final TreeItem<TreeModelEntry> cuNode = getNamedTreeNode(parentNode, "Current User");
+	private void loadCurrentUser(final TreeModelNode parentNode) {
+		final TreeModelNode cuNode = getNamedTreeNode(parentNode, "Current User");
 		final CurrentUserAtom cu = ppt.getSlideShowImpl().getCurrentUserAtom();
 		final HSLFCurrentUser cuModel = new HSLFCurrentUser(cu, cuNode);
 		cuNode.setValue(cuModel);
@@ -19,31 +19,37 @@ package de.kiwiwings.poi.visualizer.treemodel.hssf;
 import de.kiwiwings.poi.visualizer.DocumentFragment;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
 import de.kiwiwings.poi.visualizer.DocumentFragment.SourceType;
-import javafx.scene.control.TreeItem;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.RecordFactory;
+import org.apache.poi.hssf.record.UnknownRecord;
 import org.exbin.utils.binary_data.ByteArrayEditableData;
 
+import javax.json.JsonObject;
 import java.io.IOException;
-import java.io.OutputStream;
 
 import static de.kiwiwings.poi.visualizer.treemodel.TreeModelUtils.escapeString;
 import static de.kiwiwings.poi.visualizer.treemodel.TreeModelUtils.reflectProperties;
 
 public class HSSFEntry implements TreeModelEntry {
 
-	private final Record record;
+	private final HSSFRecordIndex index;
+	private final int recIdx;
 	@SuppressWarnings("unused")
-	private final TreeItem<TreeModelEntry> treeNode;
+	private final TreeModelNode treeNode;
 
-	public HSSFEntry(final Record record, final TreeItem<TreeModelEntry> treeNode) {
-		this.record = record;
+	HSSFEntry(final HSSFRecordIndex index, final int recIdx, final TreeModelNode treeNode) {
+		this.index = index;
+		this.recIdx = recIdx;
 		this.treeNode = treeNode;
 	}
 
 
 	@Override
 	public String toString() {
-		return escapeString(record.getClass().getSimpleName());
+		// the name is derived from the sid, so the record isn't decoded only for the tree cells
+		final Class<? extends Record> clazz = RecordFactory.getRecordClass(index.getSid(recIdx));
+		return escapeString((clazz == null ? UnknownRecord.class : clazz).getSimpleName());
 	}
 
 	
@@ -56,14 +62,22 @@ public class HSSFEntry implements TreeModelEntry {
 		fragment.setBinarySource(() -> getData());
 		fragment.setSourceType(SourceType.octet);
 		fragment.setFileName(toString()+".rec");
-		fragment.setProperties(reflectProperties(record));
+		fragment.setProperties(getProperties());
 	}
 
-	private ByteArrayEditableData getData() throws IOException {
-		final ByteArrayEditableData data = new ByteArrayEditableData();
-		try (final OutputStream os = data.getDataOutputStream()) {
-			os.write(record.serialize());
+	private JsonObject getProperties() {
+		if (index.isEncrypted(recIdx)) {
+			// without the password, only the raw data can be shown
+			return null;
+		}
+		try {
+			return reflectProperties(index.decode(recIdx));
+		} catch (IOException e) {
+			return null;
 		}
-		return data;
+	}
+
+	private ByteArrayEditableData getData() throws IOException {
+		return new ByteArrayEditableData(index.read(recIdx, recIdx + 1));
 	}
 }
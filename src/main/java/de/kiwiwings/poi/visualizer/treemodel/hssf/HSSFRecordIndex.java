@@ -0,0 +1,292 @@
+/* ====================================================================
+   Copyright 2017 Andreas Beeker (kiwiwings@apache.org)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package de.kiwiwings.poi.visualizer.treemodel.hssf;
+
+import de.kiwiwings.poi.visualizer.treemodel.EmbeddedPayload;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadContext;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadException;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.ContinueRecord;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FilePassRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.RecordFactory;
+import org.apache.poi.hssf.record.RecordInputStream;
+import org.apache.poi.hssf.record.UnknownRecord;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.LittleEndian;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Index of the records of a workbook stream, which only keeps the offset and sid of each record in primitive arrays.
+ * The records are decoded from the (spooled) stream, when they are activated.
+ * The substreams, i.e. the globals, worksheets and charts between a BOF and its EOF record, are tracked by their
+ * record range, type and sheet name.
+ */
+final class HSSFRecordIndex {
+	// report the progress and check for cancellation after this number of records
+	private static final int PROGRESS_RECORDS = 4096;
+
+	private final EmbeddedPayload payload;
+
+	private int count;
+	// the offsets of the records - the last element is the end of the last record
+	private long[] offsets = new long[1024];
+	private short[] sids = new short[1024];
+	// the records following a FilePass record are encrypted
+	private int encryptedFrom = Integer.MAX_VALUE;
+
+	private int substreamCount;
+	// the record indexes of the BOF records, in ascending order
+	private int[] bofs = new int[16];
+	// the record indexes of the matching EOF records
+	private int[] eofs = new int[16];
+	private int[] types = new int[16];
+	private String[] names = new String[16];
+
+	private HSSFRecordIndex(final EmbeddedPayload payload) {
+		this.payload = payload;
+	}
+
+	/**
+	 * Indexes the workbook stream by reading the record headers - apart from the BOF and BoundSheet records,
+	 * the record data is skipped
+	 *
+	 * @param payload the workbook stream
+	 * @param context the context for the progress and cancel state
+	 * @return the index
+	 */
+	static HSSFRecordIndex build(final EmbeddedPayload payload, final TreeModelLoadContext context)
+	throws IOException, TreeModelLoadException {
+		final HSSFRecordIndex index = new HSSFRecordIndex(payload);
+		context.addWork(payload.getSize());
+		try (InputStream is = new BufferedInputStream(payload.getInputStream(), 1 << 16)) {
+			index.scan(is, context);
+		}
+		return index;
+	}
+
+	private void scan(final InputStream is, final TreeModelLoadContext context) throws IOException, TreeModelLoadException {
+		final long size = payload.getSize();
+		// the sheet names by the offsets of their BOF records
+		final Map<Long,String> sheetNames = new HashMap<>();
+		// the substreams, whose EOF record hasn't been read yet
+		final Deque<Integer> open = new ArrayDeque<>();
+		final byte[] header = new byte[4];
+		boolean lastEOF = false;
+		long pos = 0, reported = 0;
+
+		while (pos + 4 <= size) {
+			IOUtils.readFully(is, header);
+			final int sid = LittleEndian.getUShort(header, 0);
+			final int len = LittleEndian.getUShort(header, 2);
+			final boolean bof = isBOF(sid);
+			if (pos + 4 + len > size || (lastEOF && !bof)) {
+				// the record is truncated or the stream is padded after the last EOF record
+				break;
+			}
+
+			final int recIdx = add(pos, sid);
+			if (bof) {
+				final byte[] data = IOUtils.toByteArray(is, len);
+				open.push(addSubstream(recIdx, (len >= 4) ? LittleEndian.getUShort(data, 2) : 0));
+				lastEOF = false;
+			} else if (sid == BoundSheetRecord.sid && recIdx < encryptedFrom) {
+				final byte[] data = IOUtils.toByteArray(is, len);
+				addSheetName(sheetNames, header, data);
+			} else {
+				IOUtils.skipFully(is, len);
+				if (sid == EOFRecord.sid && !open.isEmpty()) {
+					eofs[open.pop()] = recIdx;
+					lastEOF = open.isEmpty();
+				} else if (sid == FilePassRecord.sid) {
+					encryptedFrom = recIdx + 1;
+				}
+			}
+
+			pos += 4 + len;
+			if (count % PROGRESS_RECORDS == 0) {
+				context.worked(pos - reported);
+				reported = pos;
+				context.checkCancelled();
+			}
+		}
+
+		offsets[count] = pos;
+		// unterminated substreams end with the last record
+		while (!open.isEmpty()) {
+			eofs[open.pop()] = count - 1;
+		}
+		for (int i = 0; i < substreamCount; i++) {
+			names[i] = sheetNames.get(offsets[bofs[i]]);
+		}
+		context.worked(size - reported);
+	}
+
+	private int add(final long offset, final int sid) {
+		// keep one element for the end offset of the last record
+		if (count + 1 >= offsets.length) {
+			offsets = Arrays.copyOf(offsets, offsets.length * 2);
+			sids = Arrays.copyOf(sids, sids.length * 2);
+		}
+		offsets[count] = offset;
+		sids[count] = (short)sid;
+		return count++;
+	}
+
+	private int addSubstream(final int bof, final int type) {
+		if (substreamCount == bofs.length) {
+			final int newLen = bofs.length * 2;
+			bofs = Arrays.copyOf(bofs, newLen);
+			eofs = Arrays.copyOf(eofs, newLen);
+			types = Arrays.copyOf(types, newLen);
+			names = Arrays.copyOf(names, newLen);
+		}
+		bofs[substreamCount] = bof;
+		types[substreamCount] = type;
+		return substreamCount++;
+	}
+
+	private static void addSheetName(final Map<Long,String> sheetNames, final byte[] header, final byte[] data) {
+		final byte[] rec = new byte[header.length + data.length];
+		System.arraycopy(header, 0, rec, 0, header.length);
+		System.arraycopy(data, 0, rec, header.length, data.length);
+		try {
+			final BoundSheetRecord bsr = new BoundSheetRecord(open(rec));
+			sheetNames.put((long)bsr.getPositionOfBof(), bsr.getSheetname());
+		} catch (RuntimeException ignored) {
+			// e.g. a BIFF5 record - the substream is shown without name
+		}
+	}
+
+	private static boolean isBOF(final int sid) {
+		return sid == BOFRecord.sid || sid == BOFRecord.biff2_sid || sid == BOFRecord.biff3_sid || sid == BOFRecord.biff4_sid;
+	}
+
+	EmbeddedPayload getPayload() {
+		return payload;
+	}
+
+	/**
+	 * @return the number of records
+	 */
+	int getCount() {
+		return count;
+	}
+
+	int getSid(final int recIdx) {
+		return sids[recIdx] & 0xFFFF;
+	}
+
+	/**
+	 * @return the offset of the record header within the workbook stream
+	 */
+	long getOffset(final int recIdx) {
+		return offsets[recIdx];
+	}
+
+	/**
+	 * @return the size of the record including its header
+	 */
+	int getSize(final int recIdx) {
+		return (int)(offsets[recIdx + 1] - offsets[recIdx]);
+	}
+
+	boolean isEncrypted(final int recIdx) {
+		return recIdx >= encryptedFrom;
+	}
+
+	/**
+	 * @return the number of the substream starting at the record or a negative value, if it's not a BOF record
+	 */
+	int findSubstream(final int recIdx) {
+		return Arrays.binarySearch(bofs, 0, substreamCount, recIdx);
+	}
+
+	int getSubstreamStart(final int substream) {
+		return bofs[substream];
+	}
+
+	int getSubstreamEnd(final int substream) {
+		return eofs[substream];
+	}
+
+	/**
+	 * @return the substream type of the BOF record, e.g. {@link BOFRecord#TYPE_WORKSHEET}
+	 */
+	int getSubstreamType(final int substream) {
+		return types[substream];
+	}
+
+	/**
+	 * @return the sheet name of the substream or {@code null}, if it's not referenced by a BoundSheet record
+	 */
+	String getSubstreamName(final int substream) {
+		return names[substream];
+	}
+
+	/**
+	 * Reads the raw bytes of a record range
+	 *
+	 * @param from the first record
+	 * @param to the record after the last record
+	 * @return the records including their headers
+	 */
+	byte[] read(final int from, final int to) throws IOException {
+		final long start = offsets[from];
+		try (InputStream is = payload.getInputStream(start)) {
+			return IOUtils.toByteArray(is, (int)(offsets[to] - start));
+		}
+	}
+
+	/**
+	 * Decodes a record - the following continue records are read along, as records like the SST span them
+	 *
+	 * @param recIdx the record
+	 * @return the decoded record or an unknown record, if it can't be decoded
+	 */
+	Record decode(final int recIdx) throws IOException {
+		int end = recIdx + 1;
+		if (getSid(recIdx) != ContinueRecord.sid) {
+			while (end < count && getSid(end) == ContinueRecord.sid) {
+				end++;
+			}
+		}
+		final byte[] data = read(recIdx, end);
+		try {
+			return RecordFactory.createSingleRecord(open(data));
+		} catch (RuntimeException e) {
+			return new UnknownRecord(open(data));
+		}
+	}
+
+	private static RecordInputStream open(final byte[] data) {
+		final RecordInputStream ris = new RecordInputStream(new ByteArrayInputStream(data));
+		ris.nextRecord();
+		return ris;
+	}
+}
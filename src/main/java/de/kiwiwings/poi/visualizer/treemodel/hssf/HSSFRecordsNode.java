@@ -0,0 +1,119 @@
+/* ====================================================================
+   Copyright 2017 Andreas Beeker (kiwiwings@apache.org)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package de.kiwiwings.poi.visualizer.treemodel.hssf;
+
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
+import de.kiwiwings.poi.visualizer.treemodel.generic.GenericNamedEntry;
+
+/**
+ * Node of a record range of the workbook stream, i.e. of a substream or a page of a big substream,
+ * which creates the nodes of its records only when the children are requested the first time
+ */
+class HSSFRecordsNode extends TreeModelNode {
+	/** Ranges with more records or nested substreams are split into pages of this size */
+	static final int PAGE_SIZE = 1000;
+
+	private final HSSFRecordIndex index;
+	private final int from;
+	private final int to;
+	// the BOF record of the own substream, which is a record and not a nested substream
+	private final int bof;
+
+	private HSSFRecordsNode(final HSSFRecordIndex index, final int from, final int to, final int bof) {
+		this.index = index;
+		this.from = from;
+		this.to = to;
+		this.bof = bof;
+	}
+
+	@Override
+	protected void loadChildren() {
+		addChildren(this, index, from, to, bof);
+	}
+
+	@Override
+	protected boolean isLeafUnloaded() {
+		// don't trigger the loading of the children only for rendering the expand arrow
+		return from >= to;
+	}
+
+	@Override
+	protected boolean canContainEmbedded() {
+		// the embedded objects of a workbook are stored in storages besides the workbook stream
+		return false;
+	}
+
+	/**
+	 * Adds the nodes of the records and nested substreams of a range - big ranges are split into pages
+	 *
+	 * @param parent the parent node
+	 * @param index the record index
+	 * @param from the first record
+	 * @param to the record after the last record
+	 * @param bof the BOF record of the substream of the range or -1 for the top level
+	 */
+	static void addChildren(final TreeModelNode parent, final HSSFRecordIndex index, final int from, final int to, final int bof) {
+		int children = 0;
+		for (int i = from; i < to; i = next(index, i, bof)) {
+			children++;
+		}
+
+		if (children <= PAGE_SIZE) {
+			for (int i = from; i < to; i = next(index, i, bof)) {
+				parent.addChild(newTreeNode(index, i, bof));
+			}
+			return;
+		}
+
+		int pageStart = from;
+		int child = 0;
+		for (int i = from; i < to; i = next(index, i, bof), child++) {
+			if (child > 0 && child % PAGE_SIZE == 0) {
+				parent.addChild(newPage(index, pageStart, i, bof, child - PAGE_SIZE, child - 1));
+				pageStart = i;
+			}
+		}
+		parent.addChild(newPage(index, pageStart, to, bof, (child - 1) / PAGE_SIZE * PAGE_SIZE, child - 1));
+	}
+
+	/**
+	 * @return the record after the record or nested substream starting at the given record
+	 */
+	private static int next(final HSSFRecordIndex index, final int recIdx, final int bof) {
+		final int substream = (recIdx == bof) ? -1 : index.findSubstream(recIdx);
+		return (substream < 0) ? recIdx + 1 : index.getSubstreamEnd(substream) + 1;
+	}
+
+	private static TreeModelNode newTreeNode(final HSSFRecordIndex index, final int recIdx, final int bof) {
+		final int substream = (recIdx == bof) ? -1 : index.findSubstream(recIdx);
+		final TreeModelNode node;
+		if (substream < 0) {
+			node = new TreeModelNode();
+			node.setValue(new HSSFEntry(index, recIdx, node));
+		} else {
+			node = new HSSFRecordsNode(index, recIdx, index.getSubstreamEnd(substream) + 1, recIdx);
+			node.setValue(new HSSFSubstreamEntry(index, substream, node));
+		}
+		return node;
+	}
+
+	private static TreeModelNode newPage(final HSSFRecordIndex index, final int from, final int to, final int bof, final int firstChild, final int lastChild) {
+		final TreeModelNode node = new HSSFRecordsNode(index, from, to, bof);
+		node.setValue(new GenericNamedEntry("Records " + firstChild + " - " + lastChild, fragment -> {}));
+		return node;
+	}
+}
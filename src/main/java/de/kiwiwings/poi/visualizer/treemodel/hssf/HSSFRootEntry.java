@@ -18,19 +18,18 @@ package de.kiwiwings.poi.visualizer.treemodel.hssf;
 
 import de.kiwiwings.poi.visualizer.DocumentFragment;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
-import javafx.scene.control.TreeItem;
-import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 
 import java.io.IOException;
 
 
 public class HSSFRootEntry implements TreeModelEntry {
-	HSSFWorkbook wb;
-	final TreeItem<TreeModelEntry> treeNode;
+	final HSSFRecordIndex index;
+	final TreeModelNode treeNode;
 	final TreeModelEntry surrugateEntry;
 	
-	public HSSFRootEntry(HSSFWorkbook wb, TreeItem<TreeModelEntry> treeNode) {
-		this.wb = wb;
+	HSSFRootEntry(HSSFRecordIndex index, TreeModelNode treeNode) {
+		this.index = index;
 		this.treeNode = treeNode;
 		surrugateEntry = treeNode.getValue();
 	}
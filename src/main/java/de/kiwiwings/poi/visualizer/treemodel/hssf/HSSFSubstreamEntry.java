@@ -0,0 +1,100 @@
+/* ====================================================================
+   Copyright 2017 Andreas Beeker (kiwiwings@apache.org)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package de.kiwiwings.poi.visualizer.treemodel.hssf;
+
+import de.kiwiwings.poi.visualizer.DocumentFragment;
+import de.kiwiwings.poi.visualizer.DocumentFragment.SourceType;
+import de.kiwiwings.poi.visualizer.PagedBinaryData;
+import de.kiwiwings.poi.visualizer.treemodel.EmbeddedPayload;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
+import org.apache.poi.hssf.record.BOFRecord;
+
+import javax.json.Json;
+import java.io.IOException;
+
+import static de.kiwiwings.poi.visualizer.treemodel.TreeModelUtils.escapeString;
+
+/**
+ * Substream of the workbook stream, i.e. the records from a BOF to its EOF record
+ */
+public class HSSFSubstreamEntry implements TreeModelEntry {
+
+	private final HSSFRecordIndex index;
+	private final int substream;
+	@SuppressWarnings("unused")
+	private final TreeModelNode treeNode;
+
+	HSSFSubstreamEntry(final HSSFRecordIndex index, final int substream, final TreeModelNode treeNode) {
+		this.index = index;
+		this.substream = substream;
+		this.treeNode = treeNode;
+	}
+
+	@Override
+	public String toString() {
+		final String type;
+		switch (index.getSubstreamType(substream)) {
+			case BOFRecord.TYPE_WORKBOOK:
+				type = "Globals";
+				break;
+			case BOFRecord.TYPE_VB_MODULE:
+				type = "VB Module";
+				break;
+			case BOFRecord.TYPE_WORKSHEET:
+				type = "Worksheet";
+				break;
+			case BOFRecord.TYPE_CHART:
+				type = "Chart";
+				break;
+			case BOFRecord.TYPE_EXCEL_4_MACRO:
+				type = "Macro Sheet";
+				break;
+			case BOFRecord.TYPE_WORKSPACE_FILE:
+				type = "Workspace";
+				break;
+			default:
+				type = "Substream";
+				break;
+		}
+		final String name = index.getSubstreamName(substream);
+		return (name == null) ? type : type+" ("+escapeString(name)+")";
+	}
+
+	@Override
+	public void close() throws IOException {
+	}
+
+	@Override
+	public void activate(final DocumentFragment fragment) {
+		final int start = index.getSubstreamStart(substream);
+		final int end = index.getSubstreamEnd(substream);
+		final long offset = index.getOffset(start);
+		final long size = index.getOffset(end) + index.getSize(end) - offset;
+		final EmbeddedPayload payload = index.getPayload();
+
+		// the hex view only reads the visible pages of the substream
+		fragment.setBinarySource(() -> new PagedBinaryData(() -> payload.getInputStream(offset), size));
+		fragment.setSourceType(SourceType.octet);
+		fragment.setFileName(toString()+".bin");
+		fragment.setProperties(Json.createObjectBuilder()
+			.add("offset", offset)
+			.add("size", size)
+			.add("records", end - start + 1)
+			.build());
+	}
+}
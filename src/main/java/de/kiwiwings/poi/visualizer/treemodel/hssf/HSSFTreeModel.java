@@ -16,59 +16,58 @@
 
 package de.kiwiwings.poi.visualizer.treemodel.hssf;
 
+import de.kiwiwings.poi.visualizer.treemodel.EmbeddedPayload;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelDirNodeSource;
-import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadContext;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadException;
-import javafx.scene.control.TreeItem;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import org.apache.poi.hssf.model.InternalWorkbook;
-import org.apache.poi.hssf.record.Record;
-import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.poifs.filesystem.DirectoryNode;
 
 import java.io.IOException;
-import java.util.List;
+import java.io.InputStream;
 
 import static de.kiwiwings.poi.visualizer.treemodel.TreeModelUtils.getNamedTreeNode;
 
+/**
+ * Shows the records of the workbook stream grouped by their substreams, i.e. the globals, worksheets and charts.
+ * The workbook isn't parsed into the usermodel - the stream is only indexed by its record headers and the
+ * records are decoded, when they are activated.
+ */
 public class HSSFTreeModel implements TreeModelDirNodeSource {
 
-	private TreeItem<TreeModelEntry> parent;
+	private TreeModelNode parent;
 
-	private HSSFWorkbook wb;
+	private HSSFRecordIndex index;
 
 	@Override
-	public void load(final TreeItem<TreeModelEntry> parent, final DirectoryNode source) throws TreeModelLoadException {
-		boolean found = false;
+	public void load(final TreeModelNode parent, final DirectoryNode source, final TreeModelLoadContext context) throws TreeModelLoadException {
+		String found = null;
 		for (final String wbName : InternalWorkbook.WORKBOOK_DIR_ENTRY_NAMES) {
 			if (source.hasEntry(wbName)) {
-				found = true;
+				found = wbName;
 				break;
 			}
 		}
 
-		if (!found) {
+		if (found == null) {
 			throw new TreeModelLoadException("not a HSSF model");
 		}
 
+		this.parent = parent;
 
-		try {
-			wb = new HSSFWorkbook(source, true);
-			final TreeItem<TreeModelEntry> wbNode = getNamedTreeNode(parent, InternalWorkbook.WORKBOOK_DIR_ENTRY_NAMES);
-			HSSFRootEntry rootNode = new HSSFRootEntry(wb, wbNode);
-			wbNode.setValue(rootNode);
-			
-			loadRecords(wbNode, wb.getInternalWorkbook().getRecords());
+		// the document stream can't seek, so it's copied once for reading the records in random order
+		try (InputStream is = source.createDocumentInputStream(found)) {
+			final EmbeddedPayload payload = EmbeddedPayload.readUnique(is, parent.getTempStore(), "workbook-", ".biff");
+			index = HSSFRecordIndex.build(payload, context);
 		} catch (IOException e) {
-			throw new TreeModelLoadException("Can't load HSSF workbook",e);
+			throw new TreeModelLoadException("Can't index the workbook stream", e);
 		}
-	}
 
-	private void loadRecords(final TreeItem<TreeModelEntry> parentNode, final List<Record> records) {
-		for (final Record r : records) {
-			final TreeItem<TreeModelEntry> rNode = new TreeItem<>();
-			final HSSFEntry entry = new HSSFEntry(r, rNode);
-			rNode.setValue(entry);
-			parentNode.getChildren().add(rNode);
-		}
+		final TreeModelNode wbNode = getNamedTreeNode(parent, InternalWorkbook.WORKBOOK_DIR_ENTRY_NAMES);
+		HSSFRootEntry rootNode = new HSSFRootEntry(index, wbNode);
+		wbNode.setValue(rootNode);
+
+		HSSFRecordsNode.addChildren(wbNode, index, 0, index.getCount(), -1);
 	}
 }
@@ -17,9 +17,8 @@
 package de.kiwiwings.poi.visualizer.treemodel.ole;
 
 import de.kiwiwings.poi.visualizer.DocumentFragment;
-import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
 import de.kiwiwings.poi.visualizer.DocumentFragment.SourceType;
-import javafx.scene.control.TreeItem;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import org.apache.poi.hpsf.ClassID;
 import org.apache.poi.poifs.filesystem.DirectoryNode;
 import org.apache.poi.poifs.filesystem.DocumentNode;
@@ -27,12 +26,13 @@ import org.apache.poi.poifs.filesystem.Entry;
 import org.exbin.utils.binary_data.ByteArrayEditableData;
 
 import javax.json.Json;
+import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
 
 import static de.kiwiwings.poi.visualizer.treemodel.TreeModelUtils.escapeString;
 
 public class OLEDirEntry extends OLEEntry {
-	OLEDirEntry(final Entry entry, final TreeItem<TreeModelEntry> treeNode) {
+	OLEDirEntry(final Entry entry, final TreeModelNode treeNode) {
 		super(entry, treeNode);
 		if (!(entry instanceof DirectoryNode)) {
 			throw new IllegalArgumentException("not a DirectoryNode");
@@ -65,7 +65,7 @@ public class OLEDirEntry extends OLEEntry {
 			}
 		});
 		
-		final String props = jsonBuilder.build().toString();
+		final JsonObject props = jsonBuilder.build();
 		if (surrugateEntry != null) {
 			fragment.mergeProperties(props);
 		} else {
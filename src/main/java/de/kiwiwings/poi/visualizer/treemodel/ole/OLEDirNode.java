@@ -0,0 +1,46 @@
+/* ====================================================================
+   Copyright 2017 Andreas Beeker (kiwiwings@apache.org)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package de.kiwiwings.poi.visualizer.treemodel.ole;
+
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
+import org.apache.poi.poifs.filesystem.DirectoryNode;
+import org.apache.poi.poifs.filesystem.Entry;
+
+/**
+ * Node of a POIFS storage, which creates the nodes of its entries
+ * only when the children are requested the first time, i.e. when the node is expanded
+ */
+class OLEDirNode extends TreeModelNode {
+	private final DirectoryNode dirNode;
+
+	OLEDirNode(final DirectoryNode dirNode) {
+		this.dirNode = dirNode;
+	}
+
+	@Override
+	protected void loadChildren() {
+		for (final Entry poifsChild : dirNode) {
+			addChild(OLETreeModel.newTreeNode(poifsChild));
+		}
+	}
+
+	@Override
+	protected boolean isLeafUnloaded() {
+		// don't trigger the loading of the children only for rendering the expand arrow
+		return dirNode.getEntryCount() == 0;
+	}
+}
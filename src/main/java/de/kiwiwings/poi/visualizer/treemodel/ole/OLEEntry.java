@@ -18,29 +18,35 @@ package de.kiwiwings.poi.visualizer.treemodel.ole;
 
 import de.kiwiwings.poi.visualizer.DocumentFragment;
 import de.kiwiwings.poi.visualizer.DocumentFragment.SourceType;
+import de.kiwiwings.poi.visualizer.PagedBinaryData;
+import de.kiwiwings.poi.visualizer.treemodel.EmbeddedContainer;
+import de.kiwiwings.poi.visualizer.treemodel.EmbeddedPayload;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadContext;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadException;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import de.kiwiwings.poi.visualizer.treemodel.opc.OPCTreeModel;
-import javafx.scene.control.TreeItem;
-import org.apache.poi.poifs.filesystem.DirectoryNode;
 import org.apache.poi.poifs.filesystem.DocumentNode;
 import org.apache.poi.poifs.filesystem.Entry;
 import org.apache.poi.poifs.filesystem.FileMagic;
-import org.apache.poi.util.IOUtils;
-import org.apache.poi.util.TempFile;
+import org.exbin.utils.binary_data.BinaryData;
 import org.exbin.utils.binary_data.ByteArrayEditableData;
 
 import java.io.*;
 
 import static de.kiwiwings.poi.visualizer.treemodel.TreeModelUtils.escapeString;
 
-public class OLEEntry implements TreeModelEntry {
+public class OLEEntry implements TreeModelEntry, EmbeddedContainer {
 	Entry entry;
-	final TreeItem<TreeModelEntry> treeNode;
+	final TreeModelNode treeNode;
 	final TreeModelEntry surrugateEntry;
-	File opcFile;
+	EmbeddedPayload payload;
+	// the failure of loading the nested model - it's not loaded again, but reported on each activation
+	private Exception loadFailure;
+	// null until the header of the stream has been checked
+	private Boolean embedded;
 
-	public OLEEntry(final Entry entry, final TreeItem<TreeModelEntry> treeNode) {
+	public OLEEntry(final Entry entry, final TreeModelNode treeNode) {
 		this.entry = entry;
 		this.treeNode = treeNode;
 		surrugateEntry = treeNode.getValue();
@@ -84,43 +90,68 @@ public class OLEEntry implements TreeModelEntry {
 //		}
 //	}
 
-	private ByteArrayEditableData getData(final DocumentFragment fragment) throws IOException, TreeModelLoadException {
+	private BinaryData getData(final DocumentFragment fragment) throws IOException, TreeModelLoadException {
 		final DocumentNode dn = (DocumentNode)entry;
-		final DirectoryNode parent = (DirectoryNode)dn.getParent();
-
-		FileMagic fm;
-		try (final InputStream is = FileMagic.prepareToCheckMagic(parent.createDocumentInputStream(dn))) {
-			final ByteArrayEditableData data = new ByteArrayEditableData();
-			fm = FileMagic.valueOf(is);
-			if (fm == FileMagic.OOXML) {
-				if (opcFile == null) {
-					opcFile = copyToTempFile(is);
-					new OPCTreeModel().load(treeNode, opcFile);
-					treeNode.getValue().activate(fragment);
-				}
 
-				try (InputStream is2 = new FileInputStream(opcFile)) {
-					data.loadFromStream(is2);
-				}
+		if (dn.getSize() == 0) {
+			return new ByteArrayEditableData();
+		}
+		if (hasEmbedded()) {
+			if (loadEmbedded()) {
+				treeNode.getValue().activate(fragment);
+			}
+			return payload.getBinaryData();
+		}
+
+		// don't copy the stream - the hex view only reads the visible pages
+		return new PagedBinaryData(() -> OLEStreams.open(dn), dn.getSize());
+	}
+
+	@Override
+	public synchronized boolean hasEmbedded() throws IOException {
+		if (embedded == null) {
+			if (!(entry instanceof DocumentNode) || ((DocumentNode)entry).getSize() == 0) {
+				embedded = false;
 			} else {
-				data.loadFromStream(is);
+				try (InputStream is = FileMagic.prepareToCheckMagic(OLEStreams.open((DocumentNode)entry))) {
+					embedded = FileMagic.valueOf(is) == FileMagic.OOXML;
+				}
 			}
-			return data;
 		}
+		return embedded;
 	}
 
-	private File copyToTempFile(InputStream is) throws IOException {
+	@Override
+	public synchronized boolean loadEmbedded() throws IOException, TreeModelLoadException {
+		if (loadFailure != null) {
+			throw new TreeModelLoadException("Can't load the embedded document", loadFailure);
+		}
+		if (payload != null || !hasEmbedded()) {
+			return false;
+		}
+		// the stream is copied under the lock, so the file system isn't read concurrently while spooling
+		final EmbeddedPayload embeddedPayload;
+		synchronized (OLEStreams.getLock(entry)) {
+			try (InputStream is = OLEStreams.open((DocumentNode)entry)) {
+				embeddedPayload = readPayload(is);
+			}
+		}
+		try {
+			new OPCTreeModel().load(treeNode, embeddedPayload, new TreeModelLoadContext());
+		} catch (TreeModelLoadException|RuntimeException ex) {
+			loadFailure = ex;
+			throw ex;
+		}
+		payload = embeddedPayload;
+		return true;
+	}
+
+	private EmbeddedPayload readPayload(InputStream is) throws IOException {
 		final String partName = entry.getName();
 		final int idx = partName.lastIndexOf('.');
 		final String prefix = ((idx == -1) ? partName : partName.substring(0, idx)) + "-";
 		final String suffix = (idx == -1 || idx == partName.length()-1) ? "" : partName.substring(idx);
-
-		final File of = TempFile.createTempFile(prefix, suffix);
-		try (FileOutputStream fos = new FileOutputStream(of)) {
-			IOUtils.copy(is, fos);
-		}
-		of.deleteOnExit();
-		return of;
+		return EmbeddedPayload.read(is, treeNode.getTempStore(), prefix, suffix);
 	}
 	
 	@Override
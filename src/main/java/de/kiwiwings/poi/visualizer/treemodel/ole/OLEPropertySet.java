@@ -18,19 +18,18 @@ package de.kiwiwings.poi.visualizer.treemodel.ole;
 
 import de.kiwiwings.poi.visualizer.DocumentFragment;
 import de.kiwiwings.poi.visualizer.DocumentFragment.SourceType;
+import de.kiwiwings.poi.visualizer.PagedBinaryData;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadException;
-import javafx.scene.control.TreeItem;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import org.apache.poi.hpsf.NoPropertySetStreamException;
 import org.apache.poi.hpsf.PropertySet;
 import org.apache.poi.hpsf.PropertySetFactory;
-import org.apache.poi.poifs.filesystem.DirectoryNode;
 import org.apache.poi.poifs.filesystem.DocumentNode;
 import org.apache.poi.poifs.filesystem.Entry;
-import org.exbin.utils.binary_data.ByteArrayEditableData;
+import org.exbin.utils.binary_data.BinaryData;
 
 import java.io.IOException;
-import java.io.InputStream;
 
 import static de.kiwiwings.poi.visualizer.treemodel.TreeModelUtils.escapeString;
 import static de.kiwiwings.poi.visualizer.treemodel.TreeModelUtils.reflectProperties;
@@ -38,13 +37,15 @@ import static de.kiwiwings.poi.visualizer.treemodel.TreeModelUtils.reflectProper
 public class OLEPropertySet implements TreeModelEntry {
 	Entry entry;
 	PropertySet propertySet;
-	final TreeItem<TreeModelEntry> treeNode;
+	final TreeModelNode treeNode;
 
-	public OLEPropertySet(final Entry entry, final TreeItem<TreeModelEntry> treeNode) throws TreeModelLoadException {
+	public OLEPropertySet(final Entry entry, final TreeModelNode treeNode) throws TreeModelLoadException {
 		this.entry = entry;
 		this.treeNode = treeNode;
 		try {
-			this.propertySet = PropertySetFactory.create(entry.getParent(), entry.getName());
+			synchronized (OLEStreams.getLock(entry)) {
+				this.propertySet = PropertySetFactory.create(entry.getParent(), entry.getName());
+			}
 		} catch (NoPropertySetStreamException | IOException e) {
 			throw new TreeModelLoadException("Can't load property set", e);
 		}
@@ -67,16 +68,9 @@ public class OLEPropertySet implements TreeModelEntry {
 		fragment.setProperties(reflectProperties(propertySet));
 	}
 
-	private ByteArrayEditableData getData() throws IOException {
+	private BinaryData getData() {
 		final DocumentNode dn = (DocumentNode)entry;
-		final DirectoryNode parent = (DirectoryNode)dn.getParent();
-
-		final ByteArrayEditableData data;
-		try (final InputStream is = parent.createDocumentInputStream(dn)) {
-			data = new ByteArrayEditableData();
-			data.loadFromStream(is);
-			return data;
-		}
+		return new PagedBinaryData(() -> OLEStreams.open(dn), dn.getSize());
 	}
 
 
@@ -17,15 +17,14 @@
 package de.kiwiwings.poi.visualizer.treemodel.ole;
 
 import de.kiwiwings.poi.visualizer.DocumentFragment;
-import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
-import javafx.scene.control.TreeItem;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import org.apache.poi.poifs.filesystem.DirectoryNode;
 import org.apache.poi.poifs.filesystem.Entry;
 
 import java.io.IOException;
 
 public class OLERootEntry extends OLEDirEntry {
-	public OLERootEntry(final Entry dirEntry, final TreeItem<TreeModelEntry> treeNode) {
+	public OLERootEntry(final Entry dirEntry, final TreeModelNode treeNode) {
 		super(dirEntry, treeNode);
 	}
 
@@ -0,0 +1,97 @@
+/* ====================================================================
+   Copyright 2017 Andreas Beeker (kiwiwings@apache.org)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package de.kiwiwings.poi.visualizer.treemodel.ole;
+
+import org.apache.poi.poifs.filesystem.DirectoryNode;
+import org.apache.poi.poifs.filesystem.DocumentNode;
+import org.apache.poi.poifs.filesystem.Entry;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The POIFS file system isn't thread-safe, but its streams are read by the activation threads,
+ * the background scanner and the paged hex view at the same time. Therefore every reader of
+ * a file system locks on it, either explicitly or through the streams opened here.
+ */
+final class OLEStreams {
+	private OLEStreams() {
+	}
+
+	/**
+	 * @return the lock of the file system of the entry
+	 */
+	static Object getLock(final Entry entry) {
+		final DirectoryNode dir = (entry instanceof DirectoryNode) ? (DirectoryNode)entry : (DirectoryNode)entry.getParent();
+		return dir.getFileSystem();
+	}
+
+	/**
+	 * @return a stream of the document, which reads under the lock of its file system
+	 */
+	static InputStream open(final DocumentNode dn) throws IOException {
+		final Object lock = getLock(dn);
+		final InputStream is;
+		synchronized (lock) {
+			is = ((DirectoryNode)dn.getParent()).createDocumentInputStream(dn);
+		}
+		return new FilterInputStream(is) {
+			@Override
+			public int read() throws IOException {
+				synchronized (lock) {
+					return super.read();
+				}
+			}
+
+			@Override
+			public int read(final byte[] b, final int off, final int len) throws IOException {
+				synchronized (lock) {
+					return super.read(b, off, len);
+				}
+			}
+
+			@Override
+			public long skip(final long n) throws IOException {
+				synchronized (lock) {
+					return super.skip(n);
+				}
+			}
+
+			@Override
+			public int available() throws IOException {
+				synchronized (lock) {
+					return super.available();
+				}
+			}
+
+			@Override
+			public void reset() throws IOException {
+				synchronized (lock) {
+					super.reset();
+				}
+			}
+
+			@Override
+			public void close() throws IOException {
+				synchronized (lock) {
+					super.close();
+				}
+			}
+		};
+	}
+}
@@ -16,47 +16,100 @@
 
 package de.kiwiwings.poi.visualizer.treemodel.ole;
 
+import de.kiwiwings.poi.visualizer.treemodel.EmbeddedPayload;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelDirNodeSource;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelFileSource;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadContext;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadException;
-import javafx.scene.control.TreeItem;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelRegistry;
 import org.apache.poi.poifs.filesystem.DirectoryNode;
 import org.apache.poi.poifs.filesystem.Entry;
 import org.apache.poi.poifs.filesystem.FileMagic;
 import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.util.IOUtils;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ServiceLoader;
+import java.io.InputStream;
+import java.util.EnumSet;
+import java.util.Set;
 import java.util.function.BiFunction;
 
 public class OLETreeModel implements TreeModelFileSource {
 
-	private TreeItem<TreeModelEntry> parent;
+	private TreeModelNode parent;
 
 	private POIFSFileSystem poifs;
 
 	@Override
-	public void load(TreeItem<TreeModelEntry> parent, File source) throws TreeModelLoadException {
-		this.parent = parent;
+	public Set<FileMagic> getFileMagics() {
+		return EnumSet.of(FileMagic.OLE2);
+	}
 
+	@Override
+	public void load(TreeModelNode parent, File source, TreeModelLoadContext context) throws TreeModelLoadException {
 		try {
-			final FileMagic fm = FileMagic.valueOf(source);
-			if (fm != FileMagic.OLE2) {
-				throw new TreeModelLoadException("File with file magic '"+fm+"' can't be processed.");
-			}
-
 			poifs = new POIFSFileSystem(source);
-			traverseFileSystem(poifs.getRoot(), parent);
-			handleInnerModel(poifs, parent);
 		} catch (IOException ex) {
-			throw new TreeModelLoadException("Error in opening '"+((File)source).getPath()+"'");
+			throw new TreeModelLoadException("Error in opening '"+source.getPath()+"'");
+		}
+		loadFileSystem(parent, context);
+	}
+
+	/**
+	 * Loads an embedded file system - file systems in memory are opened directly from their bytes
+	 */
+	public void load(final TreeModelNode parent, final EmbeddedPayload payload, final TreeModelLoadContext context) throws TreeModelLoadException {
+		if (!payload.isInMemory()) {
+			load(parent, payload.getFile(), context);
+			return;
+		}
+		try (InputStream is = payload.getInputStream()) {
+			poifs = new POIFSFileSystem(is);
+		} catch (IOException ex) {
+			throw new TreeModelLoadException("Error in opening embedded file system", ex);
+		}
+		loadFileSystem(parent, context);
+	}
+
+	private void loadFileSystem(final TreeModelNode parent, final TreeModelLoadContext context) throws TreeModelLoadException {
+		this.parent = parent;
+
+		try {
+			context.addWork(poifs.getRoot().getEntryCount() + 1);
+			traverseFileSystem(poifs.getRoot(), parent, context);
+			handleInnerModel(poifs, parent, context);
+		} catch (TreeModelLoadException ex) {
+			IOUtils.closeQuietly(poifs);
+			throw ex;
+		}
+	}
+
+	private void traverseFileSystem(final DirectoryNode poifsRoot, final TreeModelNode parent, final TreeModelLoadContext context) throws TreeModelLoadException {
+		parent.setValue(newEntry(poifsRoot, parent));
+		context.worked(1);
+
+		// the first level is always created, because the directory node sources attach their models to it -
+		// the deeper levels are created, when their storages are expanded
+		for (Entry poifsChild : poifsRoot) {
+			parent.addChild(newTreeNode(poifsChild));
+			context.worked(1);
+			context.checkCancelled();
 		}
 	}
 
-	private void traverseFileSystem(final Entry poifsNode, final TreeItem<TreeModelEntry> parent) throws TreeModelLoadException {
-		final BiFunction<Entry,TreeItem<TreeModelEntry>,TreeModelEntry> newTME;
+	static TreeModelNode newTreeNode(final Entry poifsNode) {
+		final TreeModelNode treeNode = (poifsNode instanceof DirectoryNode)
+			? new OLEDirNode((DirectoryNode)poifsNode)
+			: new TreeModelNode();
+		treeNode.setValue(newEntry(poifsNode, treeNode));
+		return treeNode;
+	}
+
+	private static TreeModelEntry newEntry(final Entry poifsNode, final TreeModelNode treeNode) {
+		final BiFunction<Entry,TreeModelNode,TreeModelEntry> newTME;
 		if (poifsNode.getParent() == null) {
 			newTME = OLERootEntry::new;
 		} else if (poifsNode instanceof DirectoryNode) {
@@ -64,27 +117,21 @@ public class OLETreeModel implements TreeModelFileSource {
 		} else {
 			newTME = OLEEntry::new;
 		}
-
-		parent.setValue(newTME.apply(poifsNode, parent));
-
-		if (poifsNode instanceof DirectoryNode) {
-			for (Entry poifsChild : ((DirectoryNode)poifsNode)) {
-				TreeItem<TreeModelEntry> treeChild = new TreeItem<>();
-				parent.getChildren().add(treeChild);
-				traverseFileSystem(poifsChild, treeChild);
-			}
-		}
+		return newTME.apply(poifsNode, treeNode);
 	}
 
-	private void handleInnerModel(final POIFSFileSystem poifs, final TreeItem<TreeModelEntry> treeNode) throws TreeModelLoadException {
+	private void handleInnerModel(final POIFSFileSystem poifs, final TreeModelNode treeNode, final TreeModelLoadContext context) throws TreeModelLoadException {
 		final DirectoryNode root = poifs.getRoot();
-		final ServiceLoader<TreeModelDirNodeSource> sl = ServiceLoader.load(TreeModelDirNodeSource.class);
-		for (TreeModelDirNodeSource src : sl) {
+		for (TreeModelDirNodeSource src : TreeModelRegistry.getDirNodeSources()) {
 			try {
-				src.load(treeNode, root);
+				// the inner models read the streams of the file system
+				synchronized (poifs) {
+					src.load(treeNode, root, context);
+				}
 			} catch (TreeModelLoadException ex) {
 				// TODO: log
 			}
+			context.checkCancelled();
 		}
 	}
 }
@@ -0,0 +1,453 @@
+/* ====================================================================
+   Copyright 2017 Andreas Beeker (kiwiwings@apache.org)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package de.kiwiwings.poi.visualizer.treemodel.opc;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.poi.openxml4j.util.ZipEntrySource;
+import org.apache.poi.openxml4j.util.ZipSecureFile;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Read-only zip entry source, which parses the central directory once over a memory-mapped file channel.
+ * The entries are inflated on demand from their mapped regions, so the package isn't loaded into memory
+ * and even multi-GB files only occupy address space. Embedded packages, which are kept in memory,
+ * are indexed the same way over their buffer.
+ * <p>
+ * The mapped regions are released by the garbage collector, i.e. the file might stay locked on some
+ * platforms until then. Temporary files, which are deleted when their document is closed, are therefore
+ * read through positional channel reads instead of mappings.
+ */
+final class MappedZipEntrySource implements ZipEntrySource {
+	private static final int LOC_SIG = 0x04034b50;
+	private static final int CEN_SIG = 0x02014b50;
+	private static final int EOCD_SIG = 0x06054b50;
+	private static final int ZIP64_EOCD_SIG = 0x06064b50;
+	private static final int ZIP64_LOCATOR_SIG = 0x07064b50;
+
+	private static final int LOC_SIZE = 30;
+	private static final int CEN_SIZE = 46;
+	private static final int EOCD_SIZE = 22;
+	private static final int ZIP64_EOCD_SIZE = 56;
+	private static final int ZIP64_LOCATOR_SIZE = 20;
+	private static final int MAX_COMMENT = 0xFFFF;
+	private static final int ZIP64_EXTRA_ID = 0x0001;
+	private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+	// the entries are mapped in windows, as a mapping is limited to 2GB
+	private static final long MAX_WINDOW = 1L << 30;
+	// the window size of unmapped channels, which are read into heap buffers
+	private static final long READ_WINDOW = 64 * 1024;
+
+	// either the channel of the file or the buffer of an in-memory package is set
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+	// false, if the regions of the channel are read into heap buffers
+	private final boolean mapped;
+	// the entries in the order of the central directory
+	private final Map<String, MappedEntry> entries = new LinkedHashMap<>();
+	private volatile boolean closed;
+
+	private static final class MappedEntry extends ZipArchiveEntry {
+		private final long localHeaderOffset;
+
+		MappedEntry(final String name, final long localHeaderOffset) {
+			super(name);
+			this.localHeaderOffset = localHeaderOffset;
+		}
+	}
+
+	MappedZipEntrySource(final File file) throws IOException {
+		this(file, true);
+	}
+
+	/**
+	 * @param file the zip file
+	 * @param mapped true to map the file, false to read it without leaving mappings behind after closing
+	 */
+	MappedZipEntrySource(final File file, final boolean mapped) throws IOException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		buffer = null;
+		this.mapped = mapped;
+		try {
+			readCentralDirectory();
+		} catch (IOException|RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	MappedZipEntrySource(final ByteBuffer buffer) throws IOException {
+		this.channel = null;
+		this.buffer = buffer;
+		this.mapped = true;
+		readCentralDirectory();
+	}
+
+	@Override
+	public Enumeration<? extends ZipArchiveEntry> getEntries() {
+		return Collections.enumeration(entries.values());
+	}
+
+	@Override
+	public ZipArchiveEntry getEntry(final String path) {
+		final String normalizedPath = path.replace('\\', '/');
+		final MappedEntry entry = entries.get(normalizedPath);
+		if (entry != null) {
+			return entry;
+		}
+		// the opc spec allows case-insensitive part names
+		for (final MappedEntry me : entries.values()) {
+			if (me.getName().equalsIgnoreCase(normalizedPath)) {
+				return me;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public InputStream getInputStream(final ZipArchiveEntry entry) throws IOException {
+		if (closed) {
+			throw new IOException("zip entry source is closed");
+		}
+		final MappedEntry me = (entry instanceof MappedEntry) ? (MappedEntry)entry : entries.get(entry.getName());
+		if (me == null) {
+			throw new ZipException("unknown entry " + entry.getName());
+		}
+
+		final ByteBuffer loc = readLocalHeader(me.localHeaderOffset);
+		if (loc.getInt(0) != LOC_SIG) {
+			throw new ZipException("invalid local header of " + me.getName());
+		}
+		final long dataOffset = me.localHeaderOffset + LOC_SIZE + ushort(loc, 26) + ushort(loc, 28);
+		final InputStream is = new MappedInputStream(dataOffset, me.getCompressedSize());
+
+		switch (me.getMethod()) {
+			case ZipEntry.STORED:
+				return new ThresholdInputStream(is, null, me.getName());
+			case ZipEntry.DEFLATED: {
+				final Inflater inflater = new Inflater(true);
+				return new ThresholdInputStream(new InflaterInputStream(is, inflater, 8192), inflater, me.getName());
+			}
+			default:
+				throw new ZipException("unsupported compression method " + me.getMethod() + " of " + me.getName());
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		if (channel != null) {
+			channel.close();
+		}
+	}
+
+	@Override
+	public boolean isClosed() {
+		return closed;
+	}
+
+	private void readCentralDirectory() throws IOException {
+		final long fileSize = size();
+		if (fileSize < EOCD_SIZE) {
+			throw new ZipException("file is too small to be a zip file");
+		}
+
+		// the end of central directory record is followed by a comment of up to 64k
+		final int tailSize = (int)Math.min(fileSize, EOCD_SIZE + MAX_COMMENT);
+		final long tailOffset = fileSize - tailSize;
+		final ByteBuffer tail = map(tailOffset, tailSize);
+		int eocd = tailSize - EOCD_SIZE;
+		while (eocd >= 0 && tail.getInt(eocd) != EOCD_SIG) {
+			eocd--;
+		}
+		if (eocd < 0) {
+			throw new ZipException("end of central directory not found");
+		}
+
+		long cdSize = uint(tail, eocd + 12);
+		long cdOffset = uint(tail, eocd + 16);
+
+		final long locatorOffset = tailOffset + eocd - ZIP64_LOCATOR_SIZE;
+		if (locatorOffset >= 0) {
+			final ByteBuffer locator = map(locatorOffset, ZIP64_LOCATOR_SIZE);
+			if (locator.getInt(0) == ZIP64_LOCATOR_SIG) {
+				final ByteBuffer zip64 = map(locator.getLong(8), ZIP64_EOCD_SIZE);
+				if (zip64.getInt(0) != ZIP64_EOCD_SIG) {
+					throw new ZipException("invalid zip64 end of central directory");
+				}
+				cdSize = zip64.getLong(40);
+				cdOffset = zip64.getLong(48);
+			}
+		}
+
+		if (cdOffset < 0 || cdSize < 0 || cdOffset + cdSize > fileSize || cdSize > Integer.MAX_VALUE) {
+			throw new ZipException("invalid central directory");
+		}
+
+		final ByteBuffer cd = map(cdOffset, cdSize);
+		int pos = 0;
+		while (pos + CEN_SIZE <= cdSize && cd.getInt(pos) == CEN_SIG) {
+			final int flags = ushort(cd, pos + 8);
+			final int method = ushort(cd, pos + 10);
+			final long crc = uint(cd, pos + 16);
+			long compressedSize = uint(cd, pos + 20);
+			long size = uint(cd, pos + 24);
+			final int nameLen = ushort(cd, pos + 28);
+			final int extraLen = ushort(cd, pos + 30);
+			final int commentLen = ushort(cd, pos + 32);
+			long localHeaderOffset = uint(cd, pos + 42);
+
+			final byte[] nameBytes = new byte[nameLen];
+			cd.get(pos + CEN_SIZE, nameBytes);
+			// non-utf8 names (flag bit 11 unset) are not expected in office documents
+			final String name = new String(nameBytes, (flags & 0x800) != 0 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1);
+
+			// the zip64 extra field contains only the values, which overflowed in the fixed fields
+			int extra = pos + CEN_SIZE + nameLen;
+			final int extraEnd = extra + extraLen;
+			while (extra + 4 <= extraEnd) {
+				final int id = ushort(cd, extra);
+				final int len = ushort(cd, extra + 2);
+				if (id == ZIP64_EXTRA_ID) {
+					int val = extra + 4;
+					if (size == ZIP64_MAGIC) {
+						size = cd.getLong(val);
+						val += 8;
+					}
+					if (compressedSize == ZIP64_MAGIC) {
+						compressedSize = cd.getLong(val);
+						val += 8;
+					}
+					if (localHeaderOffset == ZIP64_MAGIC) {
+						localHeaderOffset = cd.getLong(val);
+					}
+					break;
+				}
+				extra += 4 + len;
+			}
+
+			final MappedEntry me = new MappedEntry(name, localHeaderOffset);
+			me.setMethod(method);
+			me.setCrc(crc);
+			me.setSize(size);
+			me.setCompressedSize(compressedSize);
+			entries.put(name, me);
+
+			pos += CEN_SIZE + nameLen + extraLen + commentLen;
+		}
+	}
+
+	private long size() throws IOException {
+		return (channel == null) ? buffer.limit() : channel.size();
+	}
+
+	private ByteBuffer map(final long offset, final long size) throws IOException {
+		if (offset < 0 || size < 0 || offset + size > size()) {
+			throw new ZipException("region exceeds the archive");
+		}
+		if (channel == null) {
+			return buffer.slice((int)offset, (int)size).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		return mapped
+			? channel.map(FileChannel.MapMode.READ_ONLY, offset, size).order(ByteOrder.LITTLE_ENDIAN)
+			: read(offset, (int)size);
+	}
+
+	private ByteBuffer readLocalHeader(final long offset) throws IOException {
+		// the local header is too small to be worth a mapping
+		return (channel == null) ? map(offset, LOC_SIZE) : read(offset, LOC_SIZE);
+	}
+
+	private ByteBuffer read(final long offset, final int size) throws IOException {
+		final ByteBuffer bb = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		while (bb.hasRemaining()) {
+			if (channel.read(bb, offset + bb.position()) == -1) {
+				throw new ZipException("region exceeds the archive");
+			}
+		}
+		return bb.flip();
+	}
+
+	private static int ushort(final ByteBuffer bb, final int pos) {
+		return bb.getShort(pos) & 0xFFFF;
+	}
+
+	private static long uint(final ByteBuffer bb, final int pos) {
+		return bb.getInt(pos) & 0xFFFFFFFFL;
+	}
+
+	/**
+	 * Applies the zip bomb limits of {@link ZipSecureFile}, which POI checks for the zip files opened by itself,
+	 * i.e. the maximum size of an entry and the minimum inflate ratio
+	 */
+	private static final class ThresholdInputStream extends FilterInputStream {
+		// small entries are not checked for their ratio, like in POI
+		private static final long GRACE_ENTRY_SIZE = 100 * 1024;
+
+		// the inflater of deflated entries, null for stored entries
+		private final Inflater inflater;
+		private final String name;
+		private long count;
+
+		ThresholdInputStream(final InputStream is, final Inflater inflater, final String name) {
+			super(is);
+			this.inflater = inflater;
+			this.name = name;
+		}
+
+		@Override
+		public int read() throws IOException {
+			final int b = super.read();
+			if (b != -1) {
+				checkThreshold(1);
+			}
+			return b;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			final int cnt = super.read(b, off, len);
+			if (cnt > 0) {
+				checkThreshold(cnt);
+			}
+			return cnt;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			final long cnt = super.skip(n);
+			if (cnt > 0) {
+				checkThreshold(cnt);
+			}
+			return cnt;
+		}
+
+		@Override
+		public void close() throws IOException {
+			super.close();
+			if (inflater != null) {
+				inflater.end();
+			}
+		}
+
+		private void checkThreshold(final long cnt) throws IOException {
+			count += cnt;
+			final long maxEntrySize = ZipSecureFile.getMaxEntrySize();
+			if (count > maxEntrySize) {
+				throw new IOException("Zip bomb detected! The entry " + name + " exceeds the max. size of " +
+					maxEntrySize + " bytes - the limit can be changed via ZipSecureFile.setMaxEntrySize()");
+			}
+			if (inflater != null && count > GRACE_ENTRY_SIZE) {
+				final double ratio = (double)inflater.getBytesRead() / count;
+				final double minRatio = ZipSecureFile.getMinInflateRatio();
+				if (ratio < minRatio) {
+					throw new IOException("Zip bomb detected! The entry " + name + " has a compression ratio of " +
+						ratio + ", which is below the min. ratio of " + minRatio +
+						" - the limit can be changed via ZipSecureFile.setMinInflateRatio()");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads a region of the file through mapped windows, which are mapped when they are reached
+	 */
+	private final class MappedInputStream extends InputStream {
+		private long offset;
+		private long remaining;
+		private ByteBuffer window;
+
+		MappedInputStream(final long offset, final long size) {
+			this.offset = offset;
+			this.remaining = size;
+		}
+
+		@Override
+		public int read() throws IOException {
+			return nextWindow() ? window.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (!nextWindow()) {
+				return -1;
+			}
+			final int count = Math.min(len, window.remaining());
+			window.get(b, off, count);
+			return count;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			long skipped = 0;
+			while (skipped < n && nextWindow()) {
+				final int count = (int)Math.min(n - skipped, window.remaining());
+				window.position(window.position() + count);
+				skipped += count;
+			}
+			return skipped;
+		}
+
+		@Override
+		public int available() {
+			return (int)Math.min(Integer.MAX_VALUE, remaining + (window == null ? 0 : window.remaining()));
+		}
+
+		@Override
+		public void close() {
+			window = null;
+			remaining = 0;
+		}
+
+		private boolean nextWindow() throws IOException {
+			if (window != null && window.hasRemaining()) {
+				return true;
+			}
+			if (remaining <= 0) {
+				return false;
+			}
+			if (closed) {
+				throw new IOException("zip entry source is closed");
+			}
+			final long size = Math.min(remaining, mapped ? MAX_WINDOW : READ_WINDOW);
+			window = map(offset, size);
+			offset += size;
+			remaining -= size;
+			return true;
+		}
+	}
+}
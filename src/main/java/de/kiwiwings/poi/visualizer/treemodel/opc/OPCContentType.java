@@ -18,27 +18,31 @@ package de.kiwiwings.poi.visualizer.treemodel.opc;
 
 import de.kiwiwings.poi.visualizer.DocumentFragment;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
-import javafx.scene.control.TreeItem;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.poi.openxml4j.util.ZipEntrySource;
 import org.apache.poi.util.IOUtils;
 import org.exbin.utils.binary_data.ByteArrayEditableData;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
+import java.util.zip.ZipException;
 
 public class OPCContentType implements TreeModelEntry {
     private final byte[] data;
-    final TreeItem<TreeModelEntry> treeNode;
+    final TreeModelNode treeNode;
     final TreeModelEntry surrugateEntry;
 
-    OPCContentType(File source, final TreeItem<TreeModelEntry> treeNode) throws IOException {
-        try (final ZipFile zipFile = new ZipFile((File)source)) {
-            final ZipEntry ze = zipFile.getEntry("[Content_Types].xml");
-            try (InputStream is = zipFile.getInputStream(ze)) {
-                data = IOUtils.toByteArray(is);
-            }
+    /**
+     * @param zipSource the zip archive of the package, so the entry is read from the already parsed index
+     */
+    OPCContentType(final ZipEntrySource zipSource, final TreeModelNode treeNode) throws IOException {
+        final ZipArchiveEntry ze = zipSource.getEntry("[Content_Types].xml");
+        if (ze == null) {
+            throw new ZipException("[Content_Types].xml not found");
+        }
+        try (InputStream is = zipSource.getInputStream(ze)) {
+            data = IOUtils.toByteArray(is);
         }
 
         this.treeNode = treeNode;
@@ -19,7 +19,7 @@ package de.kiwiwings.poi.visualizer.treemodel.opc;
 import de.kiwiwings.poi.visualizer.DocumentFragment;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
 import de.kiwiwings.poi.visualizer.DocumentFragment.SourceType;
-import javafx.scene.control.TreeItem;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import org.exbin.utils.binary_data.ByteArrayEditableData;
 
 import java.io.IOException;
@@ -28,10 +28,10 @@ import static de.kiwiwings.poi.visualizer.treemodel.TreeModelUtils.escapeString;
 
 public class OPCDirEntry implements TreeModelEntry {
 	final String path;
-	final TreeItem<TreeModelEntry> treeNode;
+	final TreeModelNode treeNode;
 	final TreeModelEntry surrugateEntry;
 
-	public OPCDirEntry(final String path, final TreeItem<TreeModelEntry> treeNode) {
+	public OPCDirEntry(final String path, final TreeModelNode treeNode) {
 		this.path = path;
 		this.treeNode = treeNode;
 		surrugateEntry = treeNode.getValue();
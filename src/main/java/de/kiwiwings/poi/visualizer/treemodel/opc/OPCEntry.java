@@ -18,17 +18,21 @@ package de.kiwiwings.poi.visualizer.treemodel.opc;
 
 import de.kiwiwings.poi.visualizer.DocumentFragment;
 import de.kiwiwings.poi.visualizer.DocumentFragment.SourceType;
+import de.kiwiwings.poi.visualizer.PagedBinaryData;
+import de.kiwiwings.poi.visualizer.treemodel.EmbeddedContainer;
+import de.kiwiwings.poi.visualizer.treemodel.EmbeddedPayload;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadContext;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadException;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import de.kiwiwings.poi.visualizer.treemodel.ole.OLETreeModel;
-import javafx.scene.control.TreeItem;
 import org.apache.poi.EmptyFileException;
 import org.apache.poi.openxml4j.opc.PackagePart;
 import org.apache.poi.openxml4j.opc.internal.PackagePropertiesPart;
 import org.apache.poi.poifs.filesystem.FileMagic;
 import org.apache.poi.util.IOUtils;
 import org.apache.poi.util.LocaleUtil;
-import org.apache.poi.util.TempFile;
+import org.exbin.utils.binary_data.BinaryData;
 import org.exbin.utils.binary_data.ByteArrayEditableData;
 
 import java.io.*;
@@ -36,13 +40,17 @@ import java.nio.charset.Charset;
 
 import static de.kiwiwings.poi.visualizer.treemodel.TreeModelUtils.escapeString;
 
-public class OPCEntry implements TreeModelEntry {
+public class OPCEntry implements TreeModelEntry, EmbeddedContainer {
 	private PackagePart packagePart;
-	private final TreeItem<TreeModelEntry> treeNode;
+	private final TreeModelNode treeNode;
 	private final TreeModelEntry surrugateEntry;
-	private File oleFile;
+	private EmbeddedPayload payload;
+	// a failed nested model isn't loaded again, but its failure is reported on each activation
+	private Exception loadFailure;
+	// null until the header of the part has been checked
+	private FileMagic magic;
 
-	public OPCEntry(final PackagePart packagePart, final TreeItem<TreeModelEntry> treeNode) {
+	public OPCEntry(final PackagePart packagePart, final TreeModelNode treeNode) {
 		this.packagePart = packagePart;
 		this.treeNode = treeNode;
 		surrugateEntry = treeNode.getValue();
@@ -70,13 +78,13 @@ public class OPCEntry implements TreeModelEntry {
 
 		// need to cache data, otherwise the switch from opc to ole doesn't work
 		// furthermore the data part needs to be set last, because of a side-effect in getData()
-		ByteArrayEditableData dataTmp;
+		BinaryData dataTmp;
 		try {
 			dataTmp = getData(fragment);
 		} catch (TreeModelLoadException|IOException e) {
 			dataTmp = new ByteArrayEditableData(e.getMessage().getBytes(Charset.forName("UTF-8")));
 		}
-		final ByteArrayEditableData data = dataTmp;
+		final BinaryData data = dataTmp;
 
 		fragment.setBinarySource(() -> data);
 	}
@@ -98,65 +106,82 @@ public class OPCEntry implements TreeModelEntry {
 //	}
 
 
-	private ByteArrayEditableData getData(final DocumentFragment fragment) throws IOException, TreeModelLoadException {
+	private BinaryData getData(final DocumentFragment fragment) throws IOException, TreeModelLoadException {
 		if (packagePart instanceof PackagePropertiesPart) {
 			return new ByteArrayEditableData("Property parts can't be exported.".getBytes(LocaleUtil.CHARSET_1252));
 		}
 
-		FileMagic fm;
-		try (InputStream is = FileMagic.prepareToCheckMagic(packagePart.getInputStream())) {
-			final ByteArrayEditableData data = new ByteArrayEditableData();
-			try {
-				fm = FileMagic.valueOf(is);
+		if (hasEmbedded()) {
+			if (loadEmbedded()) {
+				treeNode.getValue().activate(fragment);
+			}
+			return payload.getBinaryData();
+		}
+		if (magic == null) {
+			// the part is empty
+			return new ByteArrayEditableData();
+		}
+
+		// don't inflate the whole part - the hex view only reads the visible pages
+		return new PagedBinaryData(packagePart::getInputStream, getPartSize());
+	}
+
+	@Override
+	public synchronized boolean hasEmbedded() throws IOException {
+		if (magic == null && !(packagePart instanceof PackagePropertiesPart)) {
+			try (InputStream is = FileMagic.prepareToCheckMagic(packagePart.getInputStream())) {
+				magic = FileMagic.valueOf(is);
 			} catch (EmptyFileException e) {
-				return data;
+				return false;
 			}
+		}
+		return magic == FileMagic.OLE2 || magic == FileMagic.OOXML;
+	}
 
-			switch (fm) {
-				case OLE2:
-					if (oleFile == null) {
-						oleFile = copyToTempFile(is);
-						new OLETreeModel().load(treeNode, oleFile);
-						treeNode.getValue().activate(fragment);
-					}
-
-					try (InputStream is2 = new FileInputStream(oleFile)) {
-						data.loadFromStream(is2);
-					}
-					break;
-				case OOXML:
-					if (oleFile == null) {
-						oleFile = copyToTempFile(is);
-						new OPCTreeModel().load(treeNode, oleFile);
-						treeNode.getValue().activate(fragment);
-					}
-
-					try (InputStream is2 = new FileInputStream(oleFile)) {
-						data.loadFromStream(is2);
-					}
-					break;
-				default:
-					data.loadFromStream(is);
-					break;
+	@Override
+	public synchronized boolean loadEmbedded() throws IOException, TreeModelLoadException {
+		if (loadFailure != null) {
+			throw new TreeModelLoadException("Can't load the embedded document", loadFailure);
+		}
+		if (payload != null || !hasEmbedded()) {
+			return false;
+		}
+		final EmbeddedPayload embeddedPayload;
+		try (InputStream is = packagePart.getInputStream()) {
+			embeddedPayload = readPayload(is);
+		}
+		try {
+			if (magic == FileMagic.OLE2) {
+				new OLETreeModel().load(treeNode, embeddedPayload, new TreeModelLoadContext());
+			} else {
+				new OPCTreeModel().load(treeNode, embeddedPayload, new TreeModelLoadContext());
 			}
-			return data;
+		} catch (TreeModelLoadException|RuntimeException ex) {
+			loadFailure = ex;
+			throw ex;
 		}
+		payload = embeddedPayload;
+		return true;
+	}
 
+	private long getPartSize() throws IOException {
+		final long size = packagePart.getSize();
+		if (size >= 0) {
+			return size;
+		}
+		// the zip entry doesn't provide the uncompressed size, so we need to inflate it once
+		try (InputStream is = packagePart.getInputStream()) {
+			return Math.max(0, IOUtils.skipFully(is, Long.MAX_VALUE));
+		}
 	}
 
-	private File copyToTempFile(InputStream is) throws IOException {
+	private EmbeddedPayload readPayload(InputStream is) throws IOException {
 		String partName = packagePart.getPartName().getName();
 		partName = partName.substring(partName.lastIndexOf('/')+1);
 		final int idx = partName.lastIndexOf('.');
 		final String prefix = ((idx == -1) ? partName : partName.substring(0, idx)) + "-";
 		final String suffix = (idx == -1 || idx == partName.length()-1) ? "" : partName.substring(idx);
-
-		final File of = TempFile.createTempFile(prefix, suffix);
-		try (FileOutputStream fos = new FileOutputStream(of)) {
-			IOUtils.copy(is, fos);
-		}
-		of.deleteOnExit();
-		return of;
+		return EmbeddedPayload.read(is, treeNode.getTempStore(), prefix, suffix);
 	}
 
 	@Override
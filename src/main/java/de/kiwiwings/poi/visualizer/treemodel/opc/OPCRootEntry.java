@@ -17,8 +17,7 @@
 package de.kiwiwings.poi.visualizer.treemodel.opc;
 
 import de.kiwiwings.poi.visualizer.DocumentFragment;
-import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
-import javafx.scene.control.TreeItem;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 import org.apache.poi.openxml4j.opc.OPCPackage;
 import org.apache.poi.openxml4j.opc.PackageProperties;
@@ -27,7 +26,9 @@ import org.apache.poi.util.LocaleUtil;
 import javax.json.Json;
 import javax.json.JsonObjectBuilder;
 import java.io.IOException;
-import java.text.DateFormat;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -35,14 +36,16 @@ import java.util.Optional;
 import java.util.function.Supplier;
 
 public class OPCRootEntry extends OPCDirEntry {
-	private static final DateFormat DATE_FMT =
-		DateFormat.getDateTimeInstance(DateFormat.MEDIUM, DateFormat.SHORT, LocaleUtil.getUserLocale());
+	// the formatter is immutable, as the entries are activated by several threads
+	private static final DateTimeFormatter DATE_FMT =
+		DateTimeFormatter.ofLocalizedDateTime(FormatStyle.MEDIUM, FormatStyle.SHORT)
+			.withLocale(LocaleUtil.getUserLocale()).withZone(ZoneId.systemDefault());
 	
 	private final OPCPackage opcPackage;
 	
 	
 	
-	OPCRootEntry(final OPCPackage opcPackage, final TreeItem<TreeModelEntry> treeNode) {
+	OPCRootEntry(final OPCPackage opcPackage, final TreeModelNode treeNode) {
 		super("/", treeNode);
 		this.opcPackage = opcPackage;
 	}
@@ -94,11 +97,11 @@ public class OPCRootEntry extends OPCDirEntry {
 			final JsonObjectBuilder jsonBuilder = Json.createObjectBuilder();
 			values.forEach((n,v) -> {
 				v.get().ifPresent(p ->
-					jsonBuilder.add(n, (p instanceof Date ? DATE_FMT.format((Date)p) : p).toString())
+					jsonBuilder.add(n, (p instanceof Date ? DATE_FMT.format(((Date)p).toInstant()) : p).toString())
 				);
 			});
 
-			fragment.mergeProperties(jsonBuilder.build().toString());
+			fragment.mergeProperties(jsonBuilder.build());
 		} catch (InvalidFormatException e) {
 			fragment.mergeProperties(null);
 		}
@@ -16,97 +16,162 @@
 
 package de.kiwiwings.poi.visualizer.treemodel.opc;
 
-import de.kiwiwings.poi.visualizer.treemodel.TreeModelEntry;
+import de.kiwiwings.poi.visualizer.treemodel.EmbeddedPayload;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelFileSource;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadContext;
 import de.kiwiwings.poi.visualizer.treemodel.TreeModelLoadException;
-import javafx.scene.control.TreeItem;
+import de.kiwiwings.poi.visualizer.treemodel.TreeModelNode;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 import org.apache.poi.openxml4j.opc.OPCPackage;
 import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.ZipPackage;
 import org.apache.poi.poifs.filesystem.FileMagic;
 import org.apache.poi.util.IOUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class OPCTreeModel implements TreeModelFileSource {
+	/**
+	 * The packages are opened read-only over a memory-mapped central directory by default.
+	 * The read-write access of POI buffers the parts and needs to revert the package on closing.
+	 */
+	private static final boolean READ_WRITE = Boolean.getBoolean("poi.visualizer.opc.readwrite");
 
-	TreeItem<TreeModelEntry> parent;
+	TreeModelNode parent;
 
 	@Override
-	public void load(final TreeItem<TreeModelEntry> parent, final File source) throws TreeModelLoadException {
-		this.parent = parent;
+	public Set<FileMagic> getFileMagics() {
+		return EnumSet.of(FileMagic.OOXML);
+	}
 
-		OPCPackage opc = null;
+	@Override
+	public void load(final TreeModelNode parent, final File source, final TreeModelLoadContext context) throws TreeModelLoadException {
+		final OPCPackage opc;
 		try {
-			final FileMagic fm = FileMagic.valueOf(source);
-			if (fm != FileMagic.OOXML) {
-				throw new TreeModelLoadException("File with file magic '"+fm+"' can't be processed.");
-			}
+			opc = open(source);
+		} catch (InvalidFormatException|IOException ex) {
+			throw new TreeModelLoadException("Error in opening '" + source.getPath() + "'", ex);
+		}
+		loadPackage(parent, opc, source.getPath(), context);
+	}
 
-			opc = OPCPackage.open(source, PackageAccess.READ_WRITE);
+	/**
+	 * Loads an embedded package - packages in memory are opened directly from their bytes
+	 */
+	public void load(final TreeModelNode parent, final EmbeddedPayload payload, final TreeModelLoadContext context) throws TreeModelLoadException {
+		final OPCPackage opc;
+		try {
+			opc = open(payload);
+		} catch (InvalidFormatException|IOException ex) {
+			throw new TreeModelLoadException("Error in opening embedded package", ex);
+		}
+		loadPackage(parent, opc, "embedded package", context);
+	}
+
+	private void loadPackage(final TreeModelNode parent, final OPCPackage opc, final String name, final TreeModelLoadContext context) throws TreeModelLoadException {
+		this.parent = parent;
+
+		try {
 			OPCRootEntry opcRoot = new OPCRootEntry(opc, parent);
 			parent.setValue(opcRoot);
 
-			final Map<String,TreeItem<TreeModelEntry>> mapFolders = new HashMap<>();
-			final Map<String,List<TreeItem<TreeModelEntry>>> mapFiles = new HashMap<>();
+			final Map<String,TreeModelNode> mapFolders = new HashMap<>();
+			final Map<String,List<TreeModelNode>> mapFiles = new HashMap<>();
 			mapFolders.put("/", parent);
 
+			final List<PackagePart> parts = opc.getParts();
+			context.addWork(parts.size());
+
 			// first create the folders, so we don't have folders and files mixed in the tree
-			for (final PackagePart pp : opc.getParts()) {
+			for (final PackagePart pp : parts) {
 				final String uri = pp.getPartName().toString();
-				TreeItem<TreeModelEntry> parDir = parent;
+				TreeModelNode parDir = parent;
 				for (int idx=1;(idx=uri.indexOf('/',idx)) != -1;idx++) {
 					final String path = uri.substring(0,idx);
-					final TreeItem<TreeModelEntry> dir;
+					final TreeModelNode dir;
 					if (mapFolders.containsKey(path)) {
 						dir = mapFolders.get(path);
 					} else {
-						dir = new TreeItem<>();
+						dir = new TreeModelNode();
 						final OPCDirEntry entry = new OPCDirEntry(path, dir);
 						dir.setValue(entry);
 						mapFolders.put(path, dir);
-						parDir.getChildren().add(dir);
+						parDir.addChild(dir);
 					}
 					parDir = dir;
 				}
 
 				// temporarily store the entries
 				final String parPath = ((OPCDirEntry)parDir.getValue()).getPath();
-				final List<TreeItem<TreeModelEntry>> listFiles;
+				final List<TreeModelNode> listFiles;
 				if (mapFiles.containsKey(parPath)) {
 					listFiles = mapFiles.get(parPath);
 				} else {
 					listFiles = new ArrayList<>();
 					mapFiles.put(parPath, listFiles);
 				}
-				final TreeItem<TreeModelEntry> node = new TreeItem<>();
+				final TreeModelNode node = new TreeModelNode();
 				node.setValue(new OPCEntry(pp, node));
 				listFiles.add(node);
+				context.worked(1);
+				context.checkCancelled();
 			}
 
 
 			// then add the items
 			mapFiles.entrySet().stream().forEach(me -> {
-				final TreeItem<TreeModelEntry> parDir = mapFolders.get(me.getKey());
-				me.getValue().forEach(n -> parDir.getChildren().add(n));
+				final TreeModelNode parDir = mapFolders.get(me.getKey());
+				me.getValue().forEach(n -> parDir.addChild(n));
 			});
 
 			// and at last map the content type
-			final TreeItem<TreeModelEntry> node = new TreeItem<>();
-			final OPCContentType entry = new OPCContentType(source, node);
+			final TreeModelNode node = new TreeModelNode();
+			final OPCContentType entry = new OPCContentType(((ZipPackage)opc).getZipArchive(), node);
 			node.setValue(entry);
-			parent.getChildren().add(node);
+			parent.addChild(node);
 		} catch (InvalidFormatException|IOException ex) {
-			IOUtils.closeQuietly(opc);
-			throw new TreeModelLoadException("Error in opening '" + source.getPath() + "'", ex);
+			opc.revert();
+			throw new TreeModelLoadException("Error in opening '" + name + "'", ex);
+		} catch (TreeModelLoadException ex) {
+			opc.revert();
+			throw ex;
 		}
+	}
 
+	private static OPCPackage open(final File source) throws InvalidFormatException, IOException {
+		if (READ_WRITE) {
+			return OPCPackage.open(source, PackageAccess.READ_WRITE);
+		}
+		return open(new MappedZipEntrySource(source));
+	}
 
+	private static OPCPackage open(final EmbeddedPayload payload) throws InvalidFormatException, IOException {
+		if (READ_WRITE) {
+			try (InputStream is = payload.getInputStream()) {
+				return OPCPackage.open(is);
+			}
+		}
+		// spooled payloads are deleted on closing the document, so they aren't mapped
+		return open(payload.isInMemory()
+			? new MappedZipEntrySource(payload.getBuffer())
+			: new MappedZipEntrySource(payload.getFile(), false));
+	}
+
+	private static OPCPackage open(final MappedZipEntrySource zipSource) throws InvalidFormatException {
+		try {
+			return OPCPackage.open(zipSource);
+		} catch (InvalidFormatException|RuntimeException ex) {
+			IOUtils.closeQuietly(zipSource);
+			throw ex;
+		}
 	}
 }
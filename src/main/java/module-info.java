@@ -36,6 +36,7 @@ module kiwiwings.poivisualizer {
     requires deltahex.swing;
     requires java.json;
     requires org.apache.commons.io;
+    requires org.apache.commons.compress;
     requires org.apache.poi.poi;
     requires org.apache.poi.ooxml;
     requires org.apache.poi.scratchpad;
@@ -44,6 +45,7 @@ module kiwiwings.poivisualizer {
     requires org.apache.commons.lang3;
     requires reactfx;
     exports de.kiwiwings.poi.visualizer;
+    exports de.kiwiwings.poi.visualizer.treemodel;
     opens de.kiwiwings.poi.visualizer to javafx.fxml;
     uses TreeModelFileSource;
     uses TreeModelDirNodeSource;